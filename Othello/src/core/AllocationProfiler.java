@@ -0,0 +1,182 @@
+package core;
+
+import java.io.IOException;
+import java.util.List;
+
+import edu.rit.pj.Comm;
+import edu.rit.pj.ParallelTeam;
+
+/**
+ * Measures heap allocation per searched node for every engine, using the
+ * per-thread allocated-bytes counters of com.sun.management.ThreadMXBean.
+ * NOT part of the primary execution.
+ *
+ * Input is the same file format as the engines take. Extra settings:
+ * AllocationBudget : maximum bytes allocated per node in the search phase.
+ *   The profiler exits with status 1 if any engine goes over.
+ * AllocationWarmup : number of unmeasured runs per engine before measuring (default 1)
+ * Engines : comma separated subset of alphabeta, mtdf, iterative, alphabetasmp,
+ *   mtdfsmp (default all)
+ */
+public class AllocationProfiler {
+	static final String[] ALL_ENGINES = { "alphabeta", "mtdf", "iterative", "alphabetasmp", "mtdfsmp" };
+
+	/*
+	 * bytes allocated in each phase of one engine run
+	 */
+	static class Result {
+		String engine;
+		long setupBytes;
+		long searchBytes; // calling thread
+		long workerBytes; // SMP worker threads, 0 for sequential engines
+		long bestMoveBytes;
+		long nodes;
+
+		double bytesPerNode() {
+			return nodes == 0 ? 0.0 : (double)(searchBytes + workerBytes) / (double)nodes;
+		}
+	}
+
+	/**
+	 * run one engine over the input file, measuring each phase
+	 *
+	 * @param engine : engine name
+	 * @param filename : input file
+	 * @return measured allocation, or null if the input could not be read
+	 */
+	static Result profile(String engine, String filename) {
+		Result r = new Result();
+		r.engine = engine;
+
+		long mark = SchedulerMetrics.currentThreadAllocatedBytes();
+
+		OthelloAlphaBeta search;
+		if (engine.equals("alphabeta")) {
+			search = new OthelloAlphaBeta();
+		} else if (engine.equals("mtdf") || engine.equals("iterative")) {
+			search = new OthelloMTDf();
+		} else if (engine.equals("alphabetasmp")) {
+			search = new OthelloAlphaBetaSMP();
+		} else {
+			search = new OthelloMTDfSMP();
+		}
+
+		if (search.readInputFile(filename) == null) {
+			return null;
+		}
+
+		long now = SchedulerMetrics.currentThreadAllocatedBytes();
+		r.setupBytes = now - mark;
+		mark = now;
+
+		if (engine.equals("alphabeta")) {
+			search.alphaBetaSearch();
+		} else if (engine.equals("mtdf")) {
+			((OthelloMTDf)search).searchMTDf();
+		} else if (engine.equals("iterative")) {
+			((OthelloMTDf)search).iterativeMTDf();
+		} else {
+			OthelloAlphaBetaSMP smp = (OthelloAlphaBetaSMP)search;
+			if (engine.equals("alphabetasmp")) {
+				smp.enqueueAlphaBetaSMP(OthelloAlphaBeta.LOWESTSCORE, OthelloAlphaBeta.HIGHESTSCORE);
+			} else {
+				((OthelloMTDfSMP)smp).enqueueIterativeMTDfSMP(0);
+			}
+			smp.parallelExecution(ParallelTeam.getDefaultThreadCount(), 1);
+			r.workerBytes = smp.getSchedulerMetrics().getAllocatedBytes();
+		}
+
+		now = SchedulerMetrics.currentThreadAllocatedBytes();
+		r.searchBytes = now - mark;
+		mark = now;
+
+		search.retreiveBestMove();
+
+		now = SchedulerMetrics.currentThreadAllocatedBytes();
+		r.bestMoveBytes = now - mark;
+
+		r.nodes = search.getNodesSearched() + search.getLeafCount();
+		return r;
+	}
+
+	/**
+	 * @param args : input file
+	 */
+	public static void main(String[] args) {
+		try {
+			Comm.init(args);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		if (args.length != 1) {
+			System.out.println("Usage: AllocationProfiler [filename]");
+			return;
+		}
+
+		if (SchedulerMetrics.currentThreadAllocatedBytes() < 0) {
+			System.out.println("This JVM does not support allocated-bytes counters");
+			return;
+		}
+
+		//read the profiler's own settings
+		List<String> fileArgs = new OthelloAlphaBeta().readInputFile(args[0]);
+		if (fileArgs == null) {
+			return;
+		}
+
+		double budget = -1;
+		int warmup = 1;
+		String[] engines = ALL_ENGINES;
+
+		try {
+			String t = OthelloAlphaBeta.findSetting(fileArgs, "AllocationBudget");
+			if (t != null) {
+				budget = Double.parseDouble(t);
+			}
+			t = OthelloAlphaBeta.findSetting(fileArgs, "AllocationWarmup");
+			if (t != null) {
+				warmup = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(fileArgs, "Engines");
+			if (t != null) {
+				engines = t.split(",");
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("File Argument error");
+			return;
+		}
+
+		boolean overBudget = false;
+
+		System.out.println("engine, setup bytes, search bytes, worker bytes, best-move bytes, nodes, bytes/node");
+
+		for (String engine : engines) {
+			engine = engine.trim().toLowerCase();
+
+			//let the JIT settle so escape analysis is reflected in the numbers
+			for (int i = 0; i < warmup; ++i) {
+				profile(engine, args[0]);
+			}
+
+			Result r = profile(engine, args[0]);
+			if (r == null) {
+				return;
+			}
+
+			System.out.println(r.engine + ", " + r.setupBytes + ", " + r.searchBytes + ", " +
+					r.workerBytes + ", " + r.bestMoveBytes + ", " + r.nodes + ", " +
+					String.format("%.2f", r.bytesPerNode()));
+
+			if (budget >= 0 && r.bytesPerNode() > budget) {
+				System.out.println("FAIL: " + r.engine + " allocates " +
+						String.format("%.2f", r.bytesPerNode()) + " bytes/node, budget is " + budget);
+				overBudget = true;
+			}
+		}
+
+		if (overBudget) {
+			System.exit(1);
+		}
+	}
+}
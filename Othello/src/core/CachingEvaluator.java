@@ -0,0 +1,67 @@
+package core;
+
+/**
+ * Remembers recent scores of another evaluator.
+ *
+ * Near the leaves the same positions are reached by many move orders, and the
+ * transposition table does not store those plies (see minDepthToStore). This
+ * is a direct-mapped table of the last score seen for each slot, indexed by
+ * the low bits of OthelloBitBoard.hash64() with the side to move mixed in.
+ * Each entry keeps the whole 64-bit key, so a different position landing in
+ * the same slot is a miss and simply overwrites it.
+ *
+ * Lookups cost a hash and two loads, which pays off once the inner evaluator
+ * is more expensive than that (patterns, networks, mobility).
+ *
+ * The table is not shared: copy() gives each search object its own, so no
+ * synchronization is needed.
+ */
+public class CachingEvaluator implements LeafEvaluator {
+	static final int ENTRY_BYTES = 10; // one long key, one short score
+
+	// mixed into the key for each side to move; nonzero so an empty slot
+	// (key 0) never matches
+	static final long[] TURN_KEY = { 0x5851F42D4C957F2DL, 0x14057B7EF767814FL };
+
+	LeafEvaluator inner;
+	int sizeKB;
+	long[] keys;
+	short[] scores; // clamped evaluations, which fit in 16 bits
+	int mask;
+
+	/**
+	 * @param inner : evaluator whose scores are cached
+	 * @param sizeKB : memory for the table; rounded down to a power of two entries
+	 */
+	public CachingEvaluator(LeafEvaluator inner, int sizeKB) {
+		this.inner = inner;
+		this.sizeKB = sizeKB;
+
+		int entries = Integer.highestOneBit(Math.max(1, (int)Math.min(Integer.MAX_VALUE,
+				(long)sizeKB * 1024 / ENTRY_BYTES)));
+		keys = new long[entries];
+		scores = new short[entries];
+		mask = entries - 1;
+	}
+
+	public int evaluate(OthelloBitBoard position, int turn) {
+		long key = position.hash64() ^ TURN_KEY[turn];
+		int slot = (int)key & mask;
+		if (keys[slot] == key) {
+			return scores[slot];
+		}
+
+		int score = OthelloAlphaBeta.clampEvaluation(inner.evaluate(position, turn));
+		keys[slot] = key;
+		scores[slot] = (short)score;
+		return score;
+	}
+
+	public LeafEvaluator copy() {
+		return new CachingEvaluator(inner.copy(), sizeKB); // tables are per thread
+	}
+
+	public int getSizeKB() {
+		return sizeKB;
+	}
+}
@@ -0,0 +1,163 @@
+package core;
+
+/**
+ * Expands every child of a node at once, for the last ply of the search.
+ *
+ * expand() runs the whole-board kernels (OthelloBitBoard.generateMoves, then
+ * FlipKernel over all the moves, on the Vector API when it is available)
+ * over one position and writes each child's square, flip mask and resulting
+ * bitboards into flat arrays, with no per-child objects. order() can sort them by killer and history keys.
+ * evaluate() then scores the children from those arrays through a single
+ * scratch board, stopping at the first score that reaches the cutoff so no
+ * more leaves are evaluated than the move loop would.
+ *
+ * One batch is reused for every depth-1 node of a search object (depth-1
+ * nodes do not nest), so each search object needs its own. Sorted nodes keep
+ * their ordered move list in a batch per ply (MoveOrdering.children()).
+ */
+public class ChildBatch {
+	static final int MAX_CHILDREN = 64;
+
+	int count;
+	final int[] squares = new int[MAX_CHILDREN];
+	final long[] flipped = new long[MAX_CHILDREN];
+	final long[] white = new long[MAX_CHILDREN];
+	final long[] black = new long[MAX_CHILDREN];
+	final int[] scores = new int[MAX_CHILDREN];
+	final int[] keys = new int[MAX_CHILDREN]; // ordering keys, higher first
+
+	// canonical forms of the children kept so far (see isSymmetricDuplicate)
+	final long[] canonicalWhite = new long[MAX_CHILDREN];
+	final long[] canonicalBlack = new long[MAX_CHILDREN];
+	int canonicalCount;
+
+	private final OthelloBitBoard scratch = new OthelloBitBoard();
+
+	static final FlipKernel KERNEL = FlipKernel.get();
+
+	/**
+	 * compute every legal child of a position
+	 *
+	 * @param position : parent position
+	 * @param turn : player to move
+	 * @return number of children
+	 */
+	int expand(OthelloBitBoard position, int turn) {
+		long own = (turn == OthelloBoard.WHITE) ? position.white : position.black;
+		long opp = (turn == OthelloBoard.WHITE) ? position.black : position.white;
+
+		int n = 0;
+		for (long moves = OthelloBitBoard.generateMoves(own, opp); moves != 0; moves &= moves - 1) {
+			squares[n++] = BitUtil.ulog2(BitUtil.lowSetBit(moves));
+		}
+
+		if (turn == OthelloBoard.WHITE) {
+			KERNEL.children(own, opp, squares, n, flipped, white, black);
+		} else {
+			KERNEL.children(own, opp, squares, n, flipped, black, white);
+		}
+		count = n;
+		return n;
+	}
+
+	/**
+	 * sort the expanded children best first (see MoveOrdering), in place
+	 *
+	 * @param ordering : killer and history tables
+	 * @param turn : player to move in the parent
+	 * @param ply : distance of the parent from the root
+	 */
+	void order(MoveOrdering ordering, int turn, int ply) {
+		for (int i = 0; i < count; ++i) {
+			keys[i] = ordering.key(squares[i], turn, ply);
+		}
+		sortByKeys();
+	}
+
+	/**
+	 * stable insertion sort of the children by keys[], highest first
+	 */
+	void sortByKeys() {
+		for (int n = 1; n < count; ++n) {
+			int sq = squares[n];
+			long f = flipped[n];
+			long w = white[n];
+			long b = black[n];
+			int key = keys[n];
+
+			int i = n;
+			while (i > 0 && keys[i - 1] < key) {
+				keys[i] = keys[i - 1];
+				squares[i] = squares[i - 1];
+				flipped[i] = flipped[i - 1];
+				white[i] = white[i - 1];
+				black[i] = black[i - 1];
+				--i;
+			}
+			keys[i] = key;
+			squares[i] = sq;
+			flipped[i] = f;
+			white[i] = w;
+			black[i] = b;
+		}
+	}
+
+	/**
+	 * copy a child to a lower slot, to drop the children in between
+	 */
+	void moveChild(int from, int to) {
+		squares[to] = squares[from];
+		flipped[to] = flipped[from];
+		white[to] = white[from];
+		black[to] = black[from];
+		keys[to] = keys[from];
+	}
+
+	/**
+	 * score the children in order until one reaches the cutoff
+	 *
+	 * @param evaluator : leaf evaluator
+	 * @param turn : player who moved into the children
+	 * @param cutoff : score that ends the batch
+	 * @return number of children scored
+	 */
+	int evaluate(LeafEvaluator evaluator, int turn, int cutoff) {
+		for (int i = 0; i < count; ++i) {
+			scratch.white = white[i];
+			scratch.black = black[i];
+			scores[i] = OthelloAlphaBeta.clampEvaluation(evaluator.evaluate(scratch, turn));
+			if (scores[i] >= cutoff) {
+				return i + 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * forget the canonical forms remembered for another node
+	 */
+	void clearSymmetric() {
+		canonicalCount = 0;
+	}
+
+	/**
+	 * Remember the canonical form of a child, and report whether a symmetric
+	 * sibling was already seen since clearSymmetric()
+	 *
+	 * @return true if the child can be skipped
+	 */
+	boolean isSymmetricDuplicate(long childWhite, long childBlack) {
+		int s = OthelloBitBoard.canonicalSymmetry(childWhite, childBlack);
+		long w = OthelloBitBoard.transform(childWhite, s);
+		long b = OthelloBitBoard.transform(childBlack, s);
+		for (int i = 0; i < canonicalCount; ++i) {
+			if (canonicalWhite[i] == w && canonicalBlack[i] == b) {
+				return true;
+			}
+		}
+		canonicalWhite[canonicalCount] = w;
+		canonicalBlack[canonicalCount] = b;
+		++canonicalCount;
+		return false;
+	}
+}
@@ -0,0 +1,243 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import core.OthelloAlphaBeta.BoardAndDepth;
+import core.OthelloAlphaBeta.Window;
+
+/**
+ * Fixed-size transposition table of primitive entries.
+ *
+ * The HashMap table keeps a BoardAndDepth key, a Window and a map entry per
+ * position (around 100 bytes). Here an entry is 12 bytes: the 64-bit key of
+ * the position (BoardAndDepth.key64()) and the window packed into an int,
+ * since scores fit in 16 bits (see OthelloAlphaBeta).
+ * The slot comes from the low bits of the key, and the whole key is kept, so
+ * its upper bits verify that the slot holds the same position. Boards are
+ * never stored or compared. A new entry replaces whatever was in its slot.
+ *
+ * get() returns a copy of the stored window; callers already put() the
+ * window back after changing it. Methods the search does not use are not
+ * supported, as in SplitTranspositionTable.
+ *
+ * main() measures how often the 64-bit hash (and, for comparison, the 32-bit
+ * hashCode()) collides on positions from random games.
+ */
+public class CompactTranspositionTable implements Map<BoardAndDepth, Window> {
+	static final int ENTRY_BYTES = 12;
+
+	long[] keys; // 0 marks an empty slot
+	int[] windows; // alpha in the upper half, beta in the lower
+	int mask;
+	int entries;
+
+	/**
+	 * @param maxEntries : the table gets the largest power of two slots
+	 * below this, so size() always stays under it and a full table keeps
+	 * replacing entries
+	 */
+	public CompactTranspositionTable(int maxEntries) {
+		int slots = Integer.highestOneBit(Math.max(2, maxEntries - 1));
+		keys = new long[slots];
+		windows = new int[slots];
+		mask = slots - 1;
+	}
+
+	/**
+	 * @return the stored key for a table key; never 0
+	 */
+	private static long key(BoardAndDepth b) {
+		long key = b.key64();
+		return (key == 0) ? 1 : key;
+	}
+
+	public Window get(Object arg0) {
+		if (!(arg0 instanceof BoardAndDepth)) {
+			return null;
+		}
+		long key = key((BoardAndDepth)arg0);
+		int slot = (int)key & mask;
+		if (keys[slot] != key) {
+			return null;
+		}
+		int w = windows[slot];
+		return new Window(w >> 16, (short)w);
+	}
+
+	public Window put(BoardAndDepth arg0, Window arg1) {
+		long key = key(arg0);
+		int slot = (int)key & mask;
+		if (keys[slot] == 0) {
+			++entries;
+		}
+		keys[slot] = key;
+		windows[slot] = (arg1.alpha << 16) | (arg1.beta & 0xFFFF);
+		return null;
+	}
+
+	public boolean containsKey(Object arg0) {
+		return get(arg0) != null;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		entries = 0;
+	}
+
+	public int size() {
+		return entries;
+	}
+
+	public boolean isEmpty() {
+		return entries == 0;
+	}
+
+	/**
+	 * @return number of slots
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	public boolean containsValue(Object arg0) {
+		return false; //NOT SUPPORTED
+	}
+
+	public Set<Entry<BoardAndDepth, Window>> entrySet() {
+		return null; //NOT SUPPORTED
+	}
+
+	public Set<BoardAndDepth> keySet() {
+		return null; //NOT SUPPORTED
+	}
+
+	public Collection<Window> values() {
+		return null; //NOT SUPPORTED
+	}
+
+	public void putAll(Map<? extends BoardAndDepth, ? extends Window> arg0) {
+		for (Entry<? extends BoardAndDepth, ? extends Window> e : arg0.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	public Window remove(Object arg0) {
+		return null; //NOT SUPPORTED
+	}
+
+	/**
+	 * Count pairs of different positions that share a hash. Positions are
+	 * sorted by hash, and only runs of equal hashes are checked board by
+	 * board.
+	 *
+	 * @return number of distinct positions sharing a hash with an earlier one
+	 */
+	static long countCollisions(long[] hashes, long[] white, long[] black) {
+		long[] sorted = hashes.clone();
+		Arrays.sort(sorted);
+		Map<Long, OthelloBitBoard> repeated = new HashMap<Long, OthelloBitBoard>();
+		for (int i = 1; i < sorted.length; ++i) {
+			if (sorted[i] == sorted[i - 1]) {
+				repeated.put(sorted[i], null);
+			}
+		}
+
+		// positions reached by many games repeat; a collision is a second
+		// distinct board under one hash
+		Map<Long, Set<OthelloBitBoard>> boards = new HashMap<Long, Set<OthelloBitBoard>>();
+		long collisions = 0;
+		for (int i = 0; i < hashes.length; ++i) {
+			if (!repeated.containsKey(hashes[i])) {
+				continue;
+			}
+			Set<OthelloBitBoard> s = boards.get(hashes[i]);
+			if (s == null) {
+				s = new java.util.HashSet<OthelloBitBoard>();
+				boards.put(hashes[i], s);
+			}
+			if (s.add(new OthelloBitBoard(white[i], black[i])) && s.size() > 1) {
+				++collisions;
+			}
+		}
+		return collisions;
+	}
+
+	/**
+	 * Measure hash collisions and hashing speed on positions from random
+	 * games. NOT part of the primary execution.
+	 *
+	 * @param args : Positions=n (default 4000000), Seed=n (default 1)
+	 */
+	public static void main(String[] args) {
+		java.util.List<String> settings = Arrays.asList(args);
+		int n = 4000000;
+		long seed = 1;
+		try {
+			String t = OthelloAlphaBeta.findSetting(settings, "Positions");
+			if (t != null) {
+				n = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(settings, "Seed");
+			if (t != null) {
+				seed = Long.parseLong(t);
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("Usage: CompactTranspositionTable [Positions=n] [Seed=n]");
+			return;
+		}
+
+		long[] white = new long[n];
+		long[] black = new long[n];
+		Random random = new Random(seed);
+		OthelloBitBoard board = new OthelloBitBoard();
+		int turn = OthelloBoard.BLACK;
+		for (int i = 0; i < n; ++i) {
+			long moves = board.generateMoves(turn);
+			if (moves == 0) {
+				turn ^= 1;
+				moves = board.generateMoves(turn);
+				if (moves == 0) { // game over, start another
+					board.newGame();
+					turn = OthelloBoard.BLACK;
+					moves = board.generateMoves(turn);
+				}
+			}
+			for (int k = random.nextInt(BitUtil.countSetBits(moves)); k > 0; --k) {
+				moves &= moves - 1;
+			}
+			int sq = BitUtil.ulog2(BitUtil.lowSetBit(moves));
+			board.makeMove(OthelloBitBoard.xyTox(sq), OthelloBitBoard.xyToy(sq), turn);
+			turn ^= 1;
+			white[i] = board.white;
+			black[i] = board.black;
+		}
+
+		long[] hashes = new long[n];
+		long begin = System.nanoTime();
+		for (int i = 0; i < n; ++i) {
+			hashes[i] = new OthelloBitBoard(white[i], black[i]).hash64();
+		}
+		long hash64Time = System.nanoTime() - begin;
+
+		long[] hashCodes = new long[n];
+		begin = System.nanoTime();
+		for (int i = 0; i < n; ++i) {
+			hashCodes[i] = new OthelloBitBoard(white[i], black[i]).hashCode();
+		}
+		long hashCodeTime = System.nanoTime() - begin;
+
+		double pairs = (double)n * (n - 1) / 2;
+		System.out.println("positions: " + n);
+		System.out.println("hash64 collisions: " + countCollisions(hashes, white, black) +
+				String.format(" (random expectation at most %.2g)", pairs / Math.pow(2, 64)));
+		System.out.println("hashCode collisions: " + countCollisions(hashCodes, white, black) +
+				String.format(" (random expectation at most %.0f)", pairs / Math.pow(2, 32)));
+		System.out.println(String.format("hash64: %.1f ns, hashCode: %.1f ns",
+				(double)hash64Time / n, (double)hashCodeTime / n));
+	}
+}
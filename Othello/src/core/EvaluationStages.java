@@ -0,0 +1,80 @@
+package core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Maps a position to a game stage, so evaluators can keep a separate set of
+ * weights for each phase of the game.
+ *
+ * A stage layout is a table indexed by the number of discs on the board
+ * (0-64), so picking the stage on the hot path is one popcount and one load.
+ * Evaluators store the layout in their weight files, next to the weights it
+ * indexes.
+ */
+public class EvaluationStages {
+	static final int TABLE_SIZE = 65;
+
+	/**
+	 * @param stages : number of stages (1-61)
+	 * @return a layout splitting the disc counts 4-64 into equal buckets
+	 */
+	static byte[] buckets(int stages) {
+		byte[] table = new byte[TABLE_SIZE];
+		for (int discs = 0; discs < TABLE_SIZE; ++discs) {
+			table[discs] = (byte)((Math.max(discs - 4, 0) * stages) / 61);
+		}
+		return table;
+	}
+
+	/**
+	 * @return a layout with one stage per number of empty squares (60 stages);
+	 * a full board shares the last stage
+	 */
+	static byte[] byEmpties() {
+		byte[] table = new byte[TABLE_SIZE];
+		for (int discs = 0; discs < TABLE_SIZE; ++discs) {
+			table[discs] = (byte)Math.min(Math.max(discs - 4, 0), 59);
+		}
+		return table;
+	}
+
+	/**
+	 * @return the number of stages used by a layout
+	 */
+	static int stageCount(byte[] table) {
+		int max = 0;
+		for (int i = 0; i < TABLE_SIZE; ++i) {
+			max = Math.max(max, table[i]);
+		}
+		return max + 1;
+	}
+
+	/**
+	 * @return the number of discs on the board, the index into a layout
+	 */
+	static int discs(OthelloBitBoard position) {
+		return BitUtil.countSetBits(position.white | position.black);
+	}
+
+	/**
+	 * read a layout written by write()
+	 *
+	 * @param stages : number of stages the layout may refer to
+	 */
+	static byte[] read(DataInputStream in, int stages) throws IOException {
+		byte[] table = new byte[TABLE_SIZE];
+		in.readFully(table);
+		for (int i = 0; i < TABLE_SIZE; ++i) {
+			if (table[i] < 0 || table[i] >= stages) {
+				throw new IOException("bad stage layout");
+			}
+		}
+		return table;
+	}
+
+	static void write(DataOutputStream out, byte[] table) throws IOException {
+		out.write(table);
+	}
+}
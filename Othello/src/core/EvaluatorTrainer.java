@@ -0,0 +1,556 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.rit.pj.Comm;
+import edu.rit.pj.ParallelRegion;
+import edu.rit.pj.ParallelTeam;
+
+/**
+ * Fits leaf evaluator weights to game records. NOT part of the primary execution.
+ *
+ * Game records are text, one game per line, as a run of moves such as
+ * "f5d6c3d3c4..." (columns a-h, rows 1-8). Anything after '#' is a comment.
+ * Passes are not written; a move that is illegal for the side to move but
+ * legal for the other side is taken as a pass. Games that are illegal or do
+ * not reach the end are skipped. Every position with a legal move is a sample,
+ * labeled with the final disc difference from the point of view of the side
+ * to move.
+ *
+ * The file is streamed once per epoch in batches, and each batch is split
+ * across a ParallelTeam with per-thread accumulators.
+ *
+ * Models:
+ * pattern : PatternEvaluator tables, fit by least squares with one Jacobi
+ *   step per batch (each weight moves by the mean residual of the samples
+ *   that use it, times Rate / the number of pattern instances)
+ * simple : SimpleEvaluator disc/corner/edge weights, solved exactly by least
+ *   squares in one epoch
+ *
+ * Arguments are Name=value pairs:
+ * Games : game record file (required)
+ * Model : pattern or simple (default pattern)
+ * Stages : number of game stages with their own weights, as equal buckets of
+ *   disc count, or "empties" for one stage per empty count (default 12)
+ * Epochs : passes over the games (default 20 for pattern, 1 for simple)
+ * Rate : step size for the pattern model (default 2)
+ * Threads : worker threads (default all cores)
+ * Output : weight file to write (default PatternWeights.dat or SimpleWeights.dat)
+ */
+public class EvaluatorTrainer {
+	static final int BATCH_SIZE = 1024; // games per parallel batch
+	static final int MAX_SAMPLES = 64; // positions kept per game
+	static final double PRIOR = 4.0; // damps the step of rarely seen weights
+	static final double RIDGE = 1.0; // regularizes the simple model's normal equations
+
+	String gamesFile;
+	boolean patternModel = true;
+	int stages = 12;
+	byte[] stageLayout;
+	int epochs = 20;
+	double rate = 2.0;
+	int threads = ParallelTeam.getDefaultThreadCount();
+
+	float[][][] patternWeights; // [stage][group][index], in 1/WEIGHT_SCALE of a disc
+	double[][] simpleWeights; // [stage][term], in discs
+
+	Worker[] workers;
+
+	/**
+	 * scratch space for replaying one game record
+	 */
+	static class GameReplay {
+		long[] white = new long[MAX_SAMPLES];
+		long[] black = new long[MAX_SAMPLES];
+		int[] turn = new int[MAX_SAMPLES];
+
+		/**
+		 * @return number of samples, with the final position stored after
+		 * them, or -1 if the record is not a legal, finished game
+		 */
+		int replay(String line) {
+			int comment = line.indexOf('#');
+			if (comment != -1) {
+				line = line.substring(0, comment);
+			}
+			line = line.trim().toLowerCase();
+			if (line.length() == 0 || line.length() % 2 != 0) {
+				return -1;
+			}
+
+			OthelloBitBoard board = new OthelloBitBoard();
+			board.newGame();
+			int toMove = OthelloBoard.BLACK;
+			int count = 0;
+
+			for (int i = 0; i < line.length(); i += 2) {
+				int x = line.charAt(i) - 'a';
+				int y = line.charAt(i + 1) - '1';
+				if (x < 0 || x > 7 || y < 0 || y > 7 || count >= MAX_SAMPLES - 1) {
+					return -1;
+				}
+
+				if (!board.moveIsLegal(x, y, toMove)) {
+					toMove ^= 1; // pass
+					if (!board.moveIsLegal(x, y, toMove)) {
+						return -1;
+					}
+				}
+
+				white[count] = board.white;
+				black[count] = board.black;
+				turn[count] = toMove;
+				++count;
+
+				board.makeMove(x, y, toMove);
+				toMove ^= 1;
+			}
+
+			if (!board.gameIsSet()) {
+				return -1;
+			}
+			white[count] = board.white;
+			black[count] = board.black;
+			return count;
+		}
+
+		/**
+		 * @param k : sample
+		 * @param count : number of samples, as returned by replay()
+		 * @return final disc difference for the side to move at sample k
+		 */
+		int label(int k, int count) {
+			OthelloBitBoard end = new OthelloBitBoard(white[count], black[count]);
+			return end.countPieces(turn[k]) - end.countPieces(turn[k] ^ 1);
+		}
+	}
+
+	/*
+	 * per-thread accumulators for one epoch, plus scratch space for replaying
+	 * a game
+	 */
+	class Worker {
+		GameReplay game = new GameReplay();
+		int[] indices = new int[PatternEvaluator.INSTANCES];
+		double[] terms = new double[SimpleEvaluator.TERMS];
+
+		float[][][] residualSum; // pattern model
+		int[][][] hits;
+		double[][][] normal; // simple model: [stage][row][column], column TERMS is X'y
+
+		double squaredError;
+		long samples;
+		long games;
+		long rejected;
+
+		Worker() {
+			if (patternModel) {
+				residualSum = new float[stages][PatternEvaluator.GROUPS][];
+				hits = new int[stages][PatternEvaluator.GROUPS][];
+				for (int s = 0; s < stages; ++s) {
+					for (int g = 0; g < PatternEvaluator.GROUPS; ++g) {
+						residualSum[s][g] = new float[PatternEvaluator.tableSize(g)];
+						hits[s][g] = new int[PatternEvaluator.tableSize(g)];
+					}
+				}
+			} else {
+				normal = new double[stages][SimpleEvaluator.TERMS][SimpleEvaluator.TERMS + 1];
+			}
+		}
+
+		/**
+		 * reset the per-epoch statistics
+		 */
+		void clearStatistics() {
+			squaredError = 0.0;
+			samples = 0;
+			games = 0;
+			rejected = 0;
+		}
+
+		/**
+		 * reset the accumulators used for a step
+		 */
+		void clearSums() {
+			if (patternModel) {
+				for (int s = 0; s < stages; ++s) {
+					for (int g = 0; g < PatternEvaluator.GROUPS; ++g) {
+						Arrays.fill(residualSum[s][g], 0.0f);
+						Arrays.fill(hits[s][g], 0);
+					}
+				}
+			} else {
+				for (int s = 0; s < stages; ++s) {
+					for (int i = 0; i < SimpleEvaluator.TERMS; ++i) {
+						Arrays.fill(normal[s][i], 0.0);
+					}
+				}
+			}
+		}
+
+		/**
+		 * replay one game record and accumulate all of its samples
+		 */
+		void addGame(String line) {
+			int count = game.replay(line);
+			if (count < 0) {
+				++rejected;
+				return;
+			}
+			++games;
+
+			for (int k = 0; k < count; ++k) {
+				addSample(game.white[k], game.black[k], game.turn[k], game.label(k, count));
+			}
+		}
+
+		void addSample(long w, long b, int t, int label) {
+			long own = (t == OthelloBoard.WHITE) ? w : b;
+			long opp = (t == OthelloBoard.WHITE) ? b : w;
+			int stage = stageLayout[BitUtil.countSetBits(w | b)];
+			double residual;
+
+			if (patternModel) {
+				float[][] weights = patternWeights[stage];
+				float prediction = 0.0f;
+				for (int i = 0; i < PatternEvaluator.INSTANCES; ++i) {
+					indices[i] = PatternEvaluator.patternIndex(own, opp, i);
+					prediction += weights[PatternEvaluator.INSTANCE_GROUP[i]][indices[i]];
+				}
+
+				float r = label * PatternEvaluator.WEIGHT_SCALE - prediction;
+				for (int i = 0; i < PatternEvaluator.INSTANCES; ++i) {
+					int g = PatternEvaluator.INSTANCE_GROUP[i];
+					residualSum[stage][g][indices[i]] += r;
+					++hits[stage][g][indices[i]];
+				}
+				residual = r / PatternEvaluator.WEIGHT_SCALE;
+			} else {
+				double[] x = terms;
+				x[SimpleEvaluator.DISCS] = SimpleEvaluator.termDifference(own, opp, -1L);
+				x[SimpleEvaluator.CORNERS] = SimpleEvaluator.termDifference(own, opp, SimpleEvaluator.CORNER_MASK);
+				x[SimpleEvaluator.EDGES] = SimpleEvaluator.termDifference(own, opp, SimpleEvaluator.EDGE_MASK);
+
+				double prediction = 0.0;
+				for (int i = 0; i < SimpleEvaluator.TERMS; ++i) {
+					prediction += simpleWeights[stage][i] * x[i];
+					for (int j = 0; j < SimpleEvaluator.TERMS; ++j) {
+						normal[stage][i][j] += x[i] * x[j];
+					}
+					normal[stage][i][SimpleEvaluator.TERMS] += x[i] * label;
+				}
+				residual = label - prediction;
+			}
+
+			squaredError += residual * residual;
+			++samples;
+		}
+	}
+
+	/**
+	 * read the trainer's settings
+	 *
+	 * @return false if they are incomplete or malformed
+	 */
+	boolean readSettings(List<String> args) {
+		try {
+			gamesFile = OthelloAlphaBeta.findSetting(args, "Games");
+			if (gamesFile == null) {
+				return false;
+			}
+			String t = OthelloAlphaBeta.findSetting(args, "Model");
+			if (t != null) {
+				if (t.compareToIgnoreCase("simple") == 0) {
+					patternModel = false;
+					epochs = 1;
+				} else if (t.compareToIgnoreCase("pattern") != 0) {
+					return false;
+				}
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Stages");
+			if (t != null && t.compareToIgnoreCase("empties") == 0) {
+				stageLayout = EvaluationStages.byEmpties();
+			} else if (t != null) {
+				stages = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Epochs");
+			if (t != null) {
+				epochs = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Rate");
+			if (t != null) {
+				rate = Double.parseDouble(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Threads");
+			if (t != null) {
+				threads = Integer.parseInt(t);
+			}
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		if (stages < 1 || stages > 61) {
+			return false;
+		}
+		if (stageLayout == null) {
+			stageLayout = EvaluationStages.buckets(stages);
+		}
+		stages = EvaluationStages.stageCount(stageLayout);
+
+		return epochs >= 1 && threads >= 1;
+	}
+
+	void initialize() {
+		if (patternModel) {
+			patternWeights = new float[stages][PatternEvaluator.GROUPS][];
+			for (int s = 0; s < stages; ++s) {
+				for (int g = 0; g < PatternEvaluator.GROUPS; ++g) {
+					patternWeights[s][g] = new float[PatternEvaluator.tableSize(g)];
+				}
+			}
+		} else {
+			simpleWeights = new double[stages][];
+			for (int s = 0; s < stages; ++s) {
+				simpleWeights[s] = new double[] { 1.0, 2.0, 1.0 };
+			}
+		}
+
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; ++i) {
+			workers[i] = new Worker();
+		}
+	}
+
+	/**
+	 * Stream the game file once. The pattern model steps after every batch;
+	 * the simple model accumulates the whole epoch and solves at the end.
+	 */
+	void runEpoch(ParallelTeam team) throws Exception {
+		for (Worker w : workers) {
+			w.clearStatistics();
+			w.clearSums();
+		}
+
+		BufferedReader in = new BufferedReader(new FileReader(gamesFile), 1 << 16);
+		try {
+			final List<String> batch = new ArrayList<String>(BATCH_SIZE);
+			String line;
+
+			do {
+				batch.clear();
+				while (batch.size() < BATCH_SIZE && (line = in.readLine()) != null) {
+					if (line.trim().length() != 0 && !line.trim().startsWith("#")) {
+						batch.add(line);
+					}
+				}
+
+				if (!batch.isEmpty()) {
+					team.execute(new ParallelRegion() {
+						public void run() throws Exception {
+							Worker w = workers[getThreadIndex()];
+							for (int i = getThreadIndex(); i < batch.size(); i += threads) {
+								w.addGame(batch.get(i));
+							}
+						}
+					});
+
+					if (patternModel) {
+						update();
+						for (Worker w : workers) {
+							w.clearSums();
+						}
+					}
+				}
+			} while (batch.size() == BATCH_SIZE);
+		} finally {
+			in.close();
+		}
+
+		if (!patternModel) {
+			update();
+		}
+	}
+
+	/**
+	 * merge the workers' accumulators and take one step
+	 */
+	void update() {
+		if (patternModel) {
+			for (int s = 0; s < stages; ++s) {
+				for (int g = 0; g < PatternEvaluator.GROUPS; ++g) {
+					float[] weights = patternWeights[s][g];
+					for (int i = 0; i < weights.length; ++i) {
+						double sum = 0.0;
+						int n = 0;
+						for (Worker w : workers) {
+							sum += w.residualSum[s][g][i];
+							n += w.hits[s][g][i];
+						}
+						if (n != 0) {
+							weights[i] += (float)(rate * sum / ((n + PRIOR) * PatternEvaluator.INSTANCES));
+						}
+					}
+				}
+			}
+		} else {
+			int size = SimpleEvaluator.TERMS;
+			for (int s = 0; s < stages; ++s) {
+				double[][] a = new double[size][size + 1];
+				for (int i = 0; i < size; ++i) {
+					a[i][i] = RIDGE; // terms that never vary in a stage (corners early on) fit to 0
+				}
+				for (Worker w : workers) {
+					for (int i = 0; i < size; ++i) {
+						for (int j = 0; j <= size; ++j) {
+							a[i][j] += w.normal[s][i][j];
+						}
+					}
+				}
+				double[] solution = solve(a);
+				if (solution != null) {
+					simpleWeights[s] = solution;
+				} else {
+					System.out.println("WARNING: stage " + s + " is underdetermined, keeping its weights");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gaussian elimination with partial pivoting
+	 *
+	 * @param a : augmented matrix, overwritten
+	 * @return the solution, or null if the system is singular
+	 */
+	static double[] solve(double[][] a) {
+		int n = a.length;
+		for (int c = 0; c < n; ++c) {
+			int pivot = c;
+			for (int r = c + 1; r < n; ++r) {
+				if (Math.abs(a[r][c]) > Math.abs(a[pivot][c])) {
+					pivot = r;
+				}
+			}
+			if (Math.abs(a[pivot][c]) < 1e-9) {
+				return null;
+			}
+			double[] tmp = a[c]; a[c] = a[pivot]; a[pivot] = tmp;
+
+			for (int r = 0; r < n; ++r) {
+				if (r != c) {
+					double f = a[r][c] / a[c][c];
+					for (int k = c; k <= n; ++k) {
+						a[r][k] -= f * a[c][k];
+					}
+				}
+			}
+		}
+
+		double[] x = new double[n];
+		for (int i = 0; i < n; ++i) {
+			x[i] = a[i][n] / a[i][i];
+		}
+		return x;
+	}
+
+	static short toShort(double v) {
+		return (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+	}
+
+	void save(String filename) throws IOException {
+		if (patternModel) {
+			PatternEvaluator evaluator = new PatternEvaluator(stageLayout);
+			for (int s = 0; s < stages; ++s) {
+				for (int g = 0; g < PatternEvaluator.GROUPS; ++g) {
+					int offset = s * PatternEvaluator.STAGE_SIZE + PatternEvaluator.GROUP_OFFSET[g];
+					for (int i = 0; i < patternWeights[s][g].length; ++i) {
+						evaluator.weights[offset + i] = toShort(patternWeights[s][g][i]);
+					}
+				}
+			}
+			evaluator.save(filename);
+		} else {
+			short[] w = new short[stages * SimpleEvaluator.TERMS];
+			for (int s = 0; s < stages; ++s) {
+				for (int i = 0; i < SimpleEvaluator.TERMS; ++i) {
+					w[s * SimpleEvaluator.TERMS + i] = toShort(simpleWeights[s][i] * SimpleEvaluator.WEIGHT_SCALE);
+				}
+			}
+			SimpleEvaluator evaluator = new SimpleEvaluator();
+			evaluator.setWeights(w, stageLayout);
+			evaluator.save(filename);
+		}
+	}
+
+	/**
+	 * @param args : Name=value settings, see the class comment
+	 */
+	public static void main(String[] args) {
+		try {
+			Comm.init(args);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		EvaluatorTrainer trainer = new EvaluatorTrainer();
+		List<String> settings = Arrays.asList(args);
+		if (!trainer.readSettings(settings)) {
+			System.out.println("Usage: EvaluatorTrainer Games=[file] [Model=pattern|simple] [Stages=n] " +
+					"[Epochs=n] [Rate=x] [Threads=n] [Output=file]");
+			return;
+		}
+		String output = OthelloAlphaBeta.findSetting(settings, "Output");
+		if (output == null) {
+			output = trainer.patternModel ? "PatternWeights.dat" : "SimpleWeights.dat";
+		}
+
+		trainer.initialize();
+		ParallelTeam team = new ParallelTeam(trainer.threads);
+
+		System.out.println("epoch, games, rejected, samples, rmse (discs), time (ms)");
+		try {
+			for (int epoch = 0; epoch < trainer.epochs; ++epoch) {
+				long begin = System.currentTimeMillis();
+				trainer.runEpoch(team);
+
+				long games = 0, rejected = 0, samples = 0;
+				double squaredError = 0.0;
+				for (Worker w : trainer.workers) {
+					games += w.games;
+					rejected += w.rejected;
+					samples += w.samples;
+					squaredError += w.squaredError;
+				}
+				if (samples == 0) {
+					System.out.println("No usable games in " + trainer.gamesFile);
+					return;
+				}
+
+				// the error of each sample is measured before the step that uses it
+				System.out.println(epoch + ", " + games + ", " + rejected + ", " + samples + ", " +
+						String.format("%.3f", Math.sqrt(squaredError / samples)) + ", " +
+						(System.currentTimeMillis() - begin));
+			}
+		} catch (IOException e) {
+			System.out.println("Error reading games");
+			e.printStackTrace();
+			return;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return;
+		}
+
+		try {
+			trainer.save(output);
+			System.out.println("Weights written to " + output);
+		} catch (IOException e) {
+			System.out.println("Error writing weights");
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package core;
+
+/**
+ * Computes the flip masks and resulting bitboards of a batch of moves from
+ * one position, for ChildBatch.expand(), in plain Java (OthelloBitBoard.flips
+ * per move). get() returns VectorFlipKernel instead when the Vector API is
+ * available (see VectorKernels).
+ */
+class FlipKernel {
+	private static final FlipKernel INSTANCE =
+			VectorKernels.load("core.VectorFlipKernel", new FlipKernel());
+
+	/**
+	 * @return the kernel to use in this JVM
+	 */
+	static FlipKernel get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * make every move of a batch
+	 *
+	 * @param own : bitboard of the moving player's discs
+	 * @param opp : bitboard of the enemy's discs
+	 * @param squares : squares played (0-63), each legal
+	 * @param n : number of moves
+	 * @param flipped : receives the discs flipped by each move
+	 * @param newOwn : receives the mover's discs after each move
+	 * @param newOpp : receives the enemy's discs after each move
+	 */
+	void children(long own, long opp, int[] squares, int n,
+			long[] flipped, long[] newOwn, long[] newOpp) {
+		for (int i = 0; i < n; ++i) {
+			long f = OthelloBitBoard.flips(own, opp, squares[i]);
+			flipped[i] = f;
+			newOwn[i] = own | f | (1L << squares[i]);
+			newOpp[i] = opp & ~f;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package core;
+
+/**
+ * PatternEvaluator that keeps its pattern indices up to date incrementally.
+ *
+ * Indices are kept in absolute colors (0 empty, 1 black, 2 white) for the
+ * position last evaluated. A move changes the placed square and the flipped
+ * discs, and each changed square moves the index of every instance covering it
+ * by (new digit - old digit) * 3^position, so a move or its undo costs a few
+ * adds per changed square. evaluate() applies exactly the squares that differ
+ * between the requested position and the last one, which for the copy-make
+ * search is the unmake of the previous leaf plus the make of the next.
+ * Scoring is then one table lookup per instance; white reads a color-swapped
+ * copy of the weight tables. Each index is kept with its group's offset into
+ * the packed tables already added, so the lookup is just stage base + index.
+ *
+ * Instances are stateful, so every search object needs its own (see copy()).
+ */
+public class IncrementalPatternEvaluator extends PatternEvaluator {
+	// for each square, the instances that cover it and the power of 3 of its digit
+	static final int[][] SQUARE_INSTANCES = new int[64][];
+	static final int[][] SQUARE_POWERS = new int[64][];
+
+	static {
+		int[] count = new int[64];
+		for (int i = 0; i < INSTANCES; ++i) {
+			for (int sq : INSTANCE_SQUARES[i]) {
+				++count[sq];
+			}
+		}
+		for (int sq = 0; sq < 64; ++sq) {
+			SQUARE_INSTANCES[sq] = new int[count[sq]];
+			SQUARE_POWERS[sq] = new int[count[sq]];
+			count[sq] = 0;
+		}
+		for (int i = 0; i < INSTANCES; ++i) {
+			int[] squares = INSTANCE_SQUARES[i];
+			for (int k = 0; k < squares.length; ++k) {
+				int sq = squares[k];
+				SQUARE_INSTANCES[sq][count[sq]] = i;
+				SQUARE_POWERS[sq][count[sq]] = POW3[k];
+				++count[sq];
+			}
+		}
+	}
+
+	short[] swappedWeights; // weights with own/opponent digits exchanged, for white
+
+	// position the indices currently describe
+	long white = 0;
+	long black = 0;
+	int[] indices = INSTANCE_OFFSET.clone(); // offset + index of each instance
+
+	public IncrementalPatternEvaluator() {
+		super();
+		swappedWeights = swap(weights);
+	}
+
+	protected IncrementalPatternEvaluator(IncrementalPatternEvaluator o) {
+		super(o);
+		swappedWeights = o.swappedWeights;
+	}
+
+	protected void setWeights(short[] w, byte[] stageLayout) {
+		super.setWeights(w, stageLayout);
+		swappedWeights = swap(w);
+	}
+
+	/**
+	 * @return a copy of the packed tables indexed with digits 1 and 2 exchanged
+	 */
+	static short[] swap(short[] w) {
+		short[] s = new short[w.length];
+		for (int base = 0; base < w.length; base += STAGE_SIZE) {
+			for (int g = 0; g < GROUPS; ++g) {
+				int offset = base + GROUP_OFFSET[g];
+				for (int index = 0; index < tableSize(g); ++index) {
+					int swapped = 0;
+					for (int t = index, p = 1; t != 0; t /= 3, p *= 3) {
+						int digit = t % 3;
+						swapped += p * ((digit == 0) ? 0 : 3 - digit);
+					}
+					s[offset + swapped] = w[offset + index];
+				}
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * shift every index covering sq by delta digits
+	 */
+	private void update(int sq, int delta) {
+		int[] instances = SQUARE_INSTANCES[sq];
+		int[] powers = SQUARE_POWERS[sq];
+		for (int k = 0; k < instances.length; ++k) {
+			indices[instances[k]] += delta * powers[k];
+		}
+	}
+
+	/**
+	 * bring the indices to the given position, touching only squares that differ
+	 */
+	void moveTo(long newWhite, long newBlack) {
+		for (long changed = (white ^ newWhite) | (black ^ newBlack);
+				changed != 0;
+				changed &= changed - 1) {
+			int sq = BitUtil.ulog2(BitUtil.lowSetBit(changed));
+			int oldDigit = (int)(black >>> sq) & 1 | ((int)(white >>> sq) & 1) << 1;
+			int newDigit = (int)(newBlack >>> sq) & 1 | ((int)(newWhite >>> sq) & 1) << 1;
+			update(sq, newDigit - oldDigit);
+		}
+		white = newWhite;
+		black = newBlack;
+	}
+
+	public int evaluate(OthelloBitBoard position, int turn) {
+		moveTo(position.white, position.black);
+
+		short[] w = (turn == OthelloBoard.BLACK) ? weights : swappedWeights;
+		int base = stageOfDiscs[EvaluationStages.discs(position)] * STAGE_SIZE;
+		int score = 0;
+		for (int i = 0; i < INSTANCES; ++i) {
+			score += w[base + indices[i]];
+		}
+		return score >> (WEIGHT_SHIFT - OthelloAlphaBeta.SCORE_SHIFT);
+	}
+
+	public LeafEvaluator copy() {
+		return new IncrementalPatternEvaluator(this);
+	}
+}
@@ -0,0 +1,23 @@
+package core;
+
+/**
+ * Interface for the static evaluation used at the leaves of the search
+ */
+public interface LeafEvaluator {
+	/**
+	 * @param position : position to evaluate
+	 * @param turn : the player the score is for (WHITE or BLACK)
+	 * @return an estimation of the 'quality' of this position for turn, as a
+	 * disc difference in 1/OthelloAlphaBeta.DISC units
+	 */
+	public int evaluate(OthelloBitBoard position, int turn);
+
+	/**
+	 * Each search object owns its evaluator, and evaluators may keep state
+	 * between calls. This returns an evaluator for another search object
+	 * (e.g. a worker thread). Stateless evaluators may return themselves.
+	 *
+	 * @return an evaluator equivalent to this one
+	 */
+	public LeafEvaluator copy();
+}
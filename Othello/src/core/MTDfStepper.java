@@ -0,0 +1,87 @@
+package core;
+
+/**
+ * Chooses the null window of each MTD(f) pass.
+ *
+ * Each pass searches (t - 1, t) for a test value t inside the window known
+ * so far, alpha < t <= beta, and its fail-soft result moves alpha (fail
+ * high) or beta (fail low) until they meet. Plain MTD(f) tests at the last
+ * result, so it can only move by what each pass proves, which takes many
+ * passes when the guess is far off. Two variants move faster:
+ *
+ * STEP (MTD-step) tests past the last result by an increment that starts at
+ * firstStep and doubles while the passes keep failing the same way; a pass
+ * failing the other way starts it over.
+ *
+ * BISECT tests halfway between alpha and beta. With fail-soft results the
+ * window shrinks faster than halving, since a result often lands well
+ * inside it.
+ *
+ * The first pass always tests at the guess. One object serves one search.
+ */
+public class MTDfStepper {
+	public static final int BOUND = 0; // plain MTD(f)
+	public static final int STEP = 1;
+	public static final int BISECT = 2;
+
+	static final int MAX_STEP = 1 << 30;
+
+	int mode;
+	int firstStep;
+	int step;
+	int direction = 0; // 1 after a fail high, -1 after a fail low, 0 before the first pass
+
+	/**
+	 * @param mode : BOUND, STEP or BISECT
+	 * @param firstStep : first increment of STEP, at least 1
+	 */
+	public MTDfStepper(int mode, int firstStep) {
+		this.mode = mode;
+		this.firstStep = Math.max(1, firstStep);
+		step = this.firstStep;
+	}
+
+	/**
+	 * @param alpha : lower bound of the score known so far
+	 * @param beta : upper bound of the score known so far; above alpha
+	 * @param guess : result of the last pass, or the first guess
+	 * @return the test value t of the next pass, which searches (t - 1, t)
+	 */
+	public int next(int alpha, int beta, int guess) {
+		long t;
+		if (direction == 0 || mode == BOUND) {
+			t = (guess == alpha) ? (long)guess + 1 : guess;
+		} else if (mode == STEP) {
+			t = (direction > 0) ? (long)alpha + step : (long)beta - step + 1;
+		} else {
+			t = ((long)alpha + beta + 1) >> 1;
+		}
+		return (int)Math.max((long)alpha + 1, Math.min(beta, t));
+	}
+
+	/**
+	 * record the result of a pass
+	 *
+	 * @param failedHigh : whether the result was at least the test value
+	 */
+	public void result(boolean failedHigh) {
+		int d = failedHigh ? 1 : -1;
+		step = (d == direction) ? Math.min(MAX_STEP, step << 1) : firstStep;
+		direction = d;
+	}
+
+	/**
+	 * @param name : "bound", "step" or "bisect"
+	 * @return the mode
+	 */
+	public static int parseMode(String name) {
+		if (name.compareToIgnoreCase("bound") == 0) {
+			return BOUND;
+		} else if (name.compareToIgnoreCase("step") == 0) {
+			return STEP;
+		} else if (name.compareToIgnoreCase("bisect") == 0) {
+			return BISECT;
+		}
+		throw new IllegalArgumentException("unknown MTD(f) step mode " + name);
+	}
+}
@@ -0,0 +1,80 @@
+package core;
+
+/**
+ * Adds mobility terms to another evaluator.
+ *
+ * mobility : legal moves of the player minus those of the opponent
+ * potential mobility : empty squares next to an opponent disc, minus empty
+ *   squares next to one of the player's discs
+ * frontier : opponent discs next to an empty square, minus the player's
+ *   (discs on the frontier give the opponent moves)
+ *
+ * All three are whole-board shifts and masks (OthelloBitBoard.generateMoves
+ * and neighbors) plus popcounts, with no branches or per-square loops.
+ * Weights are in units of 1/WEIGHT_SCALE of a disc.
+ */
+public class MobilityEvaluator implements LeafEvaluator {
+	static final int WEIGHT_SHIFT = 5;
+	static final int WEIGHT_SCALE = 1 << WEIGHT_SHIFT;
+
+	LeafEvaluator inner;
+
+	int mobilityWeight = WEIGHT_SCALE;
+	int potentialMobilityWeight = WEIGHT_SCALE / 2;
+	int frontierWeight = WEIGHT_SCALE / 2;
+
+	/**
+	 * @param inner : evaluator the mobility terms are added to
+	 */
+	public MobilityEvaluator(LeafEvaluator inner) {
+		this.inner = inner;
+	}
+
+	/**
+	 * @param inner : evaluator the mobility terms are added to
+	 * @param o : evaluator to take the weights from
+	 */
+	private MobilityEvaluator(LeafEvaluator inner, MobilityEvaluator o) {
+		this.inner = inner;
+		mobilityWeight = o.mobilityWeight;
+		potentialMobilityWeight = o.potentialMobilityWeight;
+		frontierWeight = o.frontierWeight;
+	}
+
+	/**
+	 * set the weights, in discs
+	 */
+	public void setWeights(double mobility, double potentialMobility, double frontier) {
+		mobilityWeight = (int)Math.round(mobility * WEIGHT_SCALE);
+		potentialMobilityWeight = (int)Math.round(potentialMobility * WEIGHT_SCALE);
+		frontierWeight = (int)Math.round(frontier * WEIGHT_SCALE);
+	}
+
+	public int evaluate(OthelloBitBoard position, int turn) {
+		long own = (turn == OthelloBoard.WHITE) ? position.white : position.black;
+		long opp = (turn == OthelloBoard.WHITE) ? position.black : position.white;
+		long empty = ~(own | opp);
+
+		int mobility = BitUtil.countSetBits(OthelloBitBoard.generateMoves(own, opp)) -
+			BitUtil.countSetBits(OthelloBitBoard.generateMoves(opp, own));
+
+		int potentialMobility = BitUtil.countSetBits(OthelloBitBoard.neighbors(opp) & empty) -
+			BitUtil.countSetBits(OthelloBitBoard.neighbors(own) & empty);
+
+		long nextToEmpty = OthelloBitBoard.neighbors(empty);
+		int frontier = BitUtil.countSetBits(opp & nextToEmpty) -
+			BitUtil.countSetBits(own & nextToEmpty);
+
+		return inner.evaluate(position, turn) +
+			((mobilityWeight * mobility + potentialMobilityWeight * potentialMobility +
+			frontierWeight * frontier) >> (WEIGHT_SHIFT - OthelloAlphaBeta.SCORE_SHIFT));
+	}
+
+	public LeafEvaluator copy() {
+		LeafEvaluator innerCopy = inner.copy();
+		if (innerCopy == inner) {
+			return this; // nothing here is mutable
+		}
+		return new MobilityEvaluator(innerCopy, this);
+	}
+}
@@ -0,0 +1,228 @@
+package core;
+
+/**
+ * Killer and history move ordering for the unsorted search kernels.
+ *
+ * Each ply keeps two killer moves: the last two squares that caused a
+ * cutoff at that ply. The history table has one counter per side and
+ * square, increased by depth * depth whenever that move causes a cutoff, and
+ * halved when a counter gets large so recent cutoffs count for more.
+ *
+ * order() writes the legal moves of a node into the move list of its ply,
+ * killers first and then by history, using an insertion sort. The lists are
+ * allocated once per ply, and each ply only touches its own list, so
+ * ordering never allocates and the recursion does not disturb a parent's
+ * list. Moves with equal keys stay in bit-scan order.
+ *
+ * Near the end of the game the ordering is by the position instead. With at
+ * most fastestFirstEmpties empty squares, moves that leave the opponent the
+ * fewest replies go first (fastest-first), corners breaking ties; the
+ * replies are counted with the bit-parallel move generator. With at most
+ * parityEmpties, moves into quadrants with an odd number of empty squares go
+ * before all others, so we tend to get the last move in each region, and
+ * fastest-first only orders within each group.
+ *
+ * The tables are not shared: each search object (and so each thread) has
+ * its own. They are kept from one search to the next, since what they
+ * learn about squares carries over to nearby positions.
+ */
+public class MoveOrdering {
+	static final int KILLER_KEY = Integer.MAX_VALUE; // key of the first killer; the second gets one less
+	static final int HISTORY_LIMIT = 1 << 28; // age the table when a counter passes this
+
+	static final long CORNERS = 0x8100000000000081L;
+	static final long[] QUADRANTS = {
+		0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+	};
+
+	boolean enabled = true;
+	int fastestFirstEmpties = 18; // 0 turns fastest-first off
+	int parityEmpties = 4; // 0 turns parity ordering off
+
+	int[] killers = new int[0]; // two squares per ply, -1 if empty
+	final int[] history = new int[128]; // indexed by turn << 6 | square
+
+	int[][] moves = new int[0][];
+	int[][] keys = new int[0][];
+	ChildBatch[] children = new ChildBatch[0]; // move lists of sorted nodes, made on first use
+
+	/**
+	 * @param plies : number of plies to allocate move lists for
+	 */
+	public MoveOrdering(int plies) {
+		ensurePlies(plies);
+	}
+
+	/**
+	 * make sure plies 0 to (plies - 1) have move lists
+	 */
+	void ensurePlies(int plies) {
+		if (plies <= moves.length) {
+			return;
+		}
+
+		int[] newKillers = new int[plies * 2];
+		java.util.Arrays.fill(newKillers, -1);
+		System.arraycopy(killers, 0, newKillers, 0, killers.length);
+		killers = newKillers;
+
+		int[][] newMoves = new int[plies][];
+		int[][] newKeys = new int[plies][];
+		for (int i = 0; i < plies; ++i) {
+			newMoves[i] = (i < moves.length) ? moves[i] : new int[ChildBatch.MAX_CHILDREN];
+			newKeys[i] = (i < keys.length) ? keys[i] : new int[ChildBatch.MAX_CHILDREN];
+		}
+		moves = newMoves;
+		keys = newKeys;
+
+		ChildBatch[] newChildren = new ChildBatch[plies];
+		System.arraycopy(children, 0, newChildren, 0, children.length);
+		children = newChildren;
+	}
+
+	/**
+	 * @return the child list of a sorted node at this ply
+	 */
+	ChildBatch children(int ply) {
+		if (children[ply] == null) {
+			children[ply] = new ChildBatch();
+		}
+		return children[ply];
+	}
+
+	/**
+	 * @return ordering key of a move, higher is tried first
+	 */
+	int key(int square, int turn, int ply) {
+		if (!enabled) {
+			return 0;
+		}
+		if (square == killers[ply << 1]) {
+			return KILLER_KEY;
+		}
+		if (square == killers[(ply << 1) | 1]) {
+			return KILLER_KEY - 1;
+		}
+		return history[(turn << 6) | square];
+	}
+
+	/**
+	 * fill the move list of a ply, best move first, by the endgame rules when
+	 * few squares are empty and by killers and history otherwise
+	 *
+	 * @param position : position to move from
+	 * @param turn : player to move
+	 * @param ply : distance from the root
+	 * @return number of moves; the squares are in moves[ply]
+	 */
+	int order(OthelloBitBoard position, int turn, int ply) {
+		long own = (turn == OthelloBoard.WHITE) ? position.white : position.black;
+		long opp = (turn == OthelloBoard.WHITE) ? position.black : position.white;
+		long empty = ~(own | opp);
+		int empties = BitUtil.countSetBits(empty);
+		long legalMoves = OthelloBitBoard.generateMoves(own, opp);
+
+		if (empties <= fastestFirstEmpties) {
+			return orderFastestFirst(own, opp, legalMoves, (empties <= parityEmpties) ?
+					oddQuadrants(empty) : 0, ply);
+		}
+		return order(legalMoves, turn, ply);
+	}
+
+	/**
+	 * fastest-first: moves into odd quadrants first (if odd is not 0), then
+	 * fewest opponent replies, then corners
+	 *
+	 * @param odd : squares of the quadrants that go first
+	 */
+	int orderFastestFirst(long own, long opp, long legalMoves, long odd, int ply) {
+		int[] m = moves[ply];
+		int[] k = keys[ply];
+		int n = 0;
+
+		for (; legalMoves != 0; legalMoves &= legalMoves - 1) {
+			long bit = BitUtil.lowSetBit(legalMoves);
+			int sq = BitUtil.ulog2(bit);
+			long f = OthelloBitBoard.flips(own, opp, sq);
+			int replies = BitUtil.countSetBits(OthelloBitBoard.generateMoves(opp & ~f, own | f | bit));
+			int key = -(replies << 1) | (((bit & CORNERS) != 0) ? 1 : 0);
+			if ((bit & odd) != 0) {
+				key += 1 << 8;
+			}
+
+			int i = n++;
+			while (i > 0 && k[i - 1] < key) {
+				k[i] = k[i - 1];
+				m[i] = m[i - 1];
+				--i;
+			}
+			k[i] = key;
+			m[i] = sq;
+		}
+		return n;
+	}
+
+	/**
+	 * @return the squares of the quadrants with an odd number of empties
+	 */
+	static long oddQuadrants(long empty) {
+		long odd = 0;
+		for (int q = 0; q < 4; ++q) {
+			if ((BitUtil.countSetBits(empty & QUADRANTS[q]) & 1) != 0) {
+				odd |= QUADRANTS[q];
+			}
+		}
+		return odd;
+	}
+
+	/**
+	 * fill the move list of a ply, best move first
+	 *
+	 * @param legalMoves : bitboard of the legal moves
+	 * @param turn : player to move
+	 * @param ply : distance from the root
+	 * @return number of moves; the squares are in moves[ply]
+	 */
+	int order(long legalMoves, int turn, int ply) {
+		int[] m = moves[ply];
+		int[] k = keys[ply];
+		int n = 0;
+
+		for (; legalMoves != 0; legalMoves &= legalMoves - 1) {
+			int sq = BitUtil.ulog2(BitUtil.lowSetBit(legalMoves));
+			int key = key(sq, turn, ply);
+
+			int i = n++;
+			while (i > 0 && k[i - 1] < key) {
+				k[i] = k[i - 1];
+				m[i] = m[i - 1];
+				--i;
+			}
+			k[i] = key;
+			m[i] = sq;
+		}
+		return n;
+	}
+
+	/**
+	 * record a move that caused a cutoff
+	 *
+	 * @param square : the move
+	 * @param turn : player who made it
+	 * @param ply : distance from the root of the node that was cut
+	 * @param depth : remaining depth of that node
+	 */
+	void cutoff(int square, int turn, int ply, int depth) {
+		if (killers[ply << 1] != square) {
+			killers[(ply << 1) | 1] = killers[ply << 1];
+			killers[ply << 1] = square;
+		}
+
+		int h = history[(turn << 6) | square] += depth * depth;
+		if (h > HISTORY_LIMIT) {
+			for (int i = 0; i < history.length; ++i) {
+				history[i] >>= 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Small quantized neural network leaf evaluator with an incrementally updated
+ * first layer.
+ *
+ * The network has INPUTS binary inputs seen from one player: own disc on
+ * square s (input s) and opponent disc on square s (input 64 + s). They feed
+ * one hidden layer of clipped ReLUs (clamped to 0..1), and a linear output
+ * gives the expected final disc difference.
+ *
+ * Since only a few inputs change per move, the hidden layer's sums (the
+ * accumulator) are not recomputed: a disc appearing or disappearing adds or
+ * subtracts one column of input weights. Two accumulators are kept, one from
+ * each color's point of view, so evaluating for either side needs no extra
+ * work. As in IncrementalPatternEvaluator, evaluate() applies exactly the
+ * squares that differ from the position last evaluated, which for the
+ * copy-make search is the unmake of the previous leaf plus the make of the
+ * next.
+ *
+ * Fixed point: input weights and hidden biases are shorts in units of
+ * 1/ACTIVATION_SCALE, so a hidden unit is clamped to 0..ACTIVATION_SCALE.
+ * The accumulators are 16-bit, so load() rejects weights for which some
+ * position's sum would not fit (see fitsAccumulator()). Output weights are
+ * shorts in units of 1/OUTPUT_SCALE, and the output bias is an int in units
+ * of 1/(ACTIVATION_SCALE * OUTPUT_SCALE) of a disc. The inner loops are in
+ * NetworkKernel, which uses the jdk.incubator.vector API when it is present.
+ *
+ * Weights are loaded from a binary file written by NetworkTrainer:
+ * int magic ("ONNU"), int version, int inputs, int hidden,
+ * inputs * hidden shorts input weights (input-major), hidden shorts biases,
+ * hidden shorts output weights, int output bias
+ *
+ * Instances are stateful, so every search object needs its own (see copy()).
+ */
+public class NetworkEvaluator implements LeafEvaluator {
+	static final int MAGIC = 0x4F4E4E55;
+	static final int VERSION = 1;
+
+	static final int INPUTS = 128;
+	static final int OPPONENT = 64; // offset of the opponent inputs
+	static final int DEFAULT_HIDDEN = 32;
+
+	static final int ACTIVATION_SHIFT = 6;
+	static final int ACTIVATION_SCALE = 1 << ACTIVATION_SHIFT;
+	static final int OUTPUT_SHIFT = 6;
+	static final int OUTPUT_SCALE = 1 << OUTPUT_SHIFT;
+
+	static final NetworkKernel KERNEL = NetworkKernel.get(); // vector or scalar inner loops
+
+	int hidden;
+	short[] inputWeights; // [input * hidden + unit]
+	short[] hiddenBias;
+	short[] outputWeights;
+	int outputBias;
+
+	// position the accumulators currently describe
+	long white = 0;
+	long black = 0;
+	short[] whiteAccumulator; // hidden sums with white as "own"
+	short[] blackAccumulator;
+
+	/**
+	 * construct with all weights zero
+	 */
+	public NetworkEvaluator() {
+		this(DEFAULT_HIDDEN);
+	}
+
+	/**
+	 * construct with all weights zero
+	 *
+	 * @param hidden : number of hidden units
+	 */
+	public NetworkEvaluator(int hidden) {
+		setWeights(new short[INPUTS * hidden], new short[hidden], new short[hidden], 0);
+	}
+
+	/**
+	 * construct sharing another evaluator's weights, on an empty board
+	 */
+	protected NetworkEvaluator(NetworkEvaluator o) {
+		hidden = o.hidden;
+		inputWeights = o.inputWeights;
+		hiddenBias = o.hiddenBias;
+		outputWeights = o.outputWeights;
+		outputBias = o.outputBias;
+		whiteAccumulator = hiddenBias.clone();
+		blackAccumulator = hiddenBias.clone();
+	}
+
+	/**
+	 * install a new set of weights; the accumulators restart on an empty board
+	 */
+	protected void setWeights(short[] input, short[] bias, short[] output, int outBias) {
+		hidden = bias.length;
+		inputWeights = input;
+		hiddenBias = bias;
+		outputWeights = output;
+		outputBias = outBias;
+
+		white = 0;
+		black = 0;
+		whiteAccumulator = bias.clone();
+		blackAccumulator = bias.clone();
+	}
+
+	public int getHiddenCount() {
+		return hidden;
+	}
+
+	/**
+	 * add or remove a disc in both accumulators
+	 *
+	 * @param sq : square (0-63)
+	 * @param color : color of the disc
+	 * @param sign : 1 to add the disc, -1 to remove it
+	 */
+	private void place(int sq, int color, int sign) {
+		short[] own = (color == OthelloBoard.WHITE) ? whiteAccumulator : blackAccumulator;
+		short[] opp = (color == OthelloBoard.WHITE) ? blackAccumulator : whiteAccumulator;
+		KERNEL.place(own, opp, inputWeights, sq * hidden, (OPPONENT + sq) * hidden, sign, hidden);
+	}
+
+	/**
+	 * change the color of a disc in both accumulators
+	 *
+	 * @param sq : square (0-63)
+	 * @param color : new color of the disc
+	 */
+	private void flip(int sq, int color) {
+		short[] own = (color == OthelloBoard.WHITE) ? whiteAccumulator : blackAccumulator;
+		short[] opp = (color == OthelloBoard.WHITE) ? blackAccumulator : whiteAccumulator;
+		KERNEL.flip(own, opp, inputWeights, sq * hidden, (OPPONENT + sq) * hidden, hidden);
+	}
+
+	/**
+	 * bring the accumulators to the given position, touching only squares
+	 * that differ
+	 */
+	void moveTo(long newWhite, long newBlack) {
+		long occupied = white | black;
+		long newOccupied = newWhite | newBlack;
+		for (long f = occupied & ~newOccupied; f != 0; f &= f - 1) {
+			int sq = BitUtil.ulog2(BitUtil.lowSetBit(f));
+			place(sq, ((white >>> sq) & 1) != 0 ? OthelloBoard.WHITE : OthelloBoard.BLACK, -1);
+		}
+		for (long f = newOccupied & ~occupied; f != 0; f &= f - 1) {
+			int sq = BitUtil.ulog2(BitUtil.lowSetBit(f));
+			place(sq, ((newWhite >>> sq) & 1) != 0 ? OthelloBoard.WHITE : OthelloBoard.BLACK, 1);
+		}
+		for (long f = occupied & newOccupied & (white ^ newWhite); f != 0; f &= f - 1) {
+			int sq = BitUtil.ulog2(BitUtil.lowSetBit(f));
+			flip(sq, ((newWhite >>> sq) & 1) != 0 ? OthelloBoard.WHITE : OthelloBoard.BLACK);
+		}
+		white = newWhite;
+		black = newBlack;
+	}
+
+	/**
+	 * @return the network output for an accumulator, in score units (see OthelloAlphaBeta)
+	 */
+	int output(short[] accumulator) {
+		int sum = outputBias + KERNEL.dot(accumulator, outputWeights, hidden);
+		return sum >> (ACTIVATION_SHIFT + OUTPUT_SHIFT - OthelloAlphaBeta.SCORE_SHIFT);
+	}
+
+	public int evaluate(OthelloBitBoard position, int turn) {
+		moveTo(position.white, position.black);
+		return output((turn == OthelloBoard.WHITE) ? whiteAccumulator : blackAccumulator);
+	}
+
+	public LeafEvaluator copy() {
+		return new NetworkEvaluator(this);
+	}
+
+	/**
+	 * load weights from a file
+	 *
+	 * @param filename : weight file
+	 */
+	public void load(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a network weight file");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported network weight version " + version);
+			}
+			if (in.readInt() != INPUTS) {
+				throw new IOException("network input count mismatch");
+			}
+			int h = in.readInt();
+			if (h < 1 || h > 1024) {
+				throw new IOException("bad hidden unit count " + h);
+			}
+
+			short[] input = new short[INPUTS * h];
+			for (int i = 0; i < input.length; ++i) {
+				input[i] = in.readShort();
+			}
+			short[] bias = new short[h];
+			for (int i = 0; i < h; ++i) {
+				bias[i] = in.readShort();
+			}
+			short[] output = new short[h];
+			for (int i = 0; i < h; ++i) {
+				output[i] = in.readShort();
+			}
+			if (!fitsAccumulator(input, bias)) {
+				throw new IOException("network weights can overflow the 16-bit accumulators");
+			}
+			setWeights(input, bias, output, in.readInt());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * A hidden unit's sum is its bias plus, for each occupied square, the
+	 * weight of either the own or the opponent input. Its largest magnitude
+	 * is therefore bounded by the bias plus the larger of the two weights on
+	 * every square.
+	 *
+	 * @return true if no position can take an accumulator out of short range
+	 */
+	static boolean fitsAccumulator(short[] input, short[] bias) {
+		int h = bias.length;
+		for (int j = 0; j < h; ++j) {
+			int bound = Math.abs(bias[j]);
+			for (int sq = 0; sq < 64; ++sq) {
+				bound += Math.max(Math.abs(input[sq * h + j]), Math.abs(input[(OPPONENT + sq) * h + j]));
+			}
+			if (bound > Short.MAX_VALUE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * write the weights to a file
+	 *
+	 * @param filename : weight file
+	 */
+	public void save(String filename) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(INPUTS);
+			out.writeInt(hidden);
+			for (int i = 0; i < inputWeights.length; ++i) {
+				out.writeShort(inputWeights[i]);
+			}
+			for (int i = 0; i < hidden; ++i) {
+				out.writeShort(hiddenBias[i]);
+			}
+			for (int i = 0; i < hidden; ++i) {
+				out.writeShort(outputWeights[i]);
+			}
+			out.writeInt(outputBias);
+		} finally {
+			out.close();
+		}
+	}
+}
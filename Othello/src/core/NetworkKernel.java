@@ -0,0 +1,68 @@
+package core;
+
+/**
+ * Inner loops of NetworkEvaluator over its short accumulators, in plain Java.
+ *
+ * get() returns VectorNetworkKernel instead when the Vector API is
+ * available (see VectorKernels).
+ */
+class NetworkKernel {
+	private static final NetworkKernel INSTANCE =
+			VectorKernels.load("core.VectorNetworkKernel", new NetworkKernel());
+
+	/**
+	 * @return the kernel to use in this JVM
+	 */
+	static NetworkKernel get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * add a disc: one weight column goes into each accumulator
+	 *
+	 * @param own : accumulator of the disc's owner
+	 * @param opp : accumulator of the other player
+	 * @param w : input weights
+	 * @param ownOffset : start of the column added to own
+	 * @param oppOffset : start of the column added to opp
+	 * @param sign : 1 to add the disc, -1 to remove it
+	 * @param n : number of hidden units
+	 */
+	void place(short[] own, short[] opp, short[] w, int ownOffset, int oppOffset, int sign, int n) {
+		for (int j = 0; j < n; ++j) {
+			own[j] += sign * w[ownOffset + j];
+			opp[j] += sign * w[oppOffset + j];
+		}
+	}
+
+	/**
+	 * change the color of a disc: the difference of its two weight columns
+	 * moves from one accumulator to the other
+	 *
+	 * @param own : accumulator of the disc's new owner
+	 * @param opp : accumulator of the other player
+	 * @param w : input weights
+	 * @param ownOffset : column of the disc as own disc
+	 * @param oppOffset : column of the disc as opponent disc
+	 * @param n : number of hidden units
+	 */
+	void flip(short[] own, short[] opp, short[] w, int ownOffset, int oppOffset, int n) {
+		for (int j = 0; j < n; ++j) {
+			int delta = w[ownOffset + j] - w[oppOffset + j];
+			own[j] += delta;
+			opp[j] -= delta;
+		}
+	}
+
+	/**
+	 * @return the sum of the clamped activations times the output weights
+	 */
+	int dot(short[] accumulator, short[] w, int n) {
+		int sum = 0;
+		for (int j = 0; j < n; ++j) {
+			int a = Math.min(Math.max(accumulator[j], 0), NetworkEvaluator.ACTIVATION_SCALE);
+			sum += a * w[j];
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,383 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import edu.rit.pj.Comm;
+import edu.rit.pj.ParallelRegion;
+import edu.rit.pj.ParallelTeam;
+
+/**
+ * Trains NetworkEvaluator weights on game records. NOT part of the primary
+ * execution.
+ *
+ * Game records and samples are the same as for EvaluatorTrainer: every
+ * position with a legal move, labeled with the final disc difference for the
+ * side to move. Training is in floating point on the CPU, minimizing squared
+ * error with Adam, one step per batch of games. Each batch is split across a
+ * ParallelTeam, and each thread sums the gradient of its own samples. The
+ * weights are quantized only when written.
+ *
+ * Input weights and hidden biases are clipped to +-MAX_INPUT_WEIGHT after
+ * every step, which keeps every reachable accumulator value within 16 bits
+ * once quantized.
+ *
+ * Arguments are Name=value pairs:
+ * Games : game record file (required)
+ * Hidden : number of hidden units (default 32)
+ * Epochs : passes over the games (default 10)
+ * Rate : Adam step size (default 0.001)
+ * Seed : seed for the initial weights (default 1)
+ * Threads : worker threads (default all cores)
+ * Output : weight file to write (default NetworkWeights.dat)
+ */
+public class NetworkTrainer {
+	static final int BATCH_SIZE = 64; // games per step
+	static final double BETA1 = 0.9;
+	static final double BETA2 = 0.999;
+	static final double EPSILON = 1e-8;
+
+	// 64 discs and a bias, each at most this much, fit in a short once scaled
+	static final float MAX_INPUT_WEIGHT = (float)Short.MAX_VALUE / (65 * NetworkEvaluator.ACTIVATION_SCALE);
+	static final float MAX_OUTPUT_WEIGHT = (float)Short.MAX_VALUE / NetworkEvaluator.OUTPUT_SCALE;
+
+	String gamesFile;
+	int hidden = NetworkEvaluator.DEFAULT_HIDDEN;
+	int epochs = 10;
+	double rate = 0.001;
+	long seed = 1;
+	int threads = ParallelTeam.getDefaultThreadCount();
+
+	// all parameters in one array: input weights, hidden biases, output weights, output bias
+	int hiddenBiasOffset;
+	int outputOffset;
+	int outputBiasOffset;
+	float[] parameters;
+	double[] moment1; // Adam state
+	double[] moment2;
+	int steps;
+
+	Worker[] workers;
+
+	/*
+	 * per-thread gradient and statistics, plus scratch space for one sample
+	 */
+	class Worker {
+		EvaluatorTrainer.GameReplay game = new EvaluatorTrainer.GameReplay();
+		int[] inputs = new int[64];
+		float[] sums = new float[hidden];
+		float[] activations = new float[hidden];
+		float[] gradient = new float[parameters.length];
+
+		double squaredError;
+		long samples;
+		long batchSamples;
+		long games;
+		long rejected;
+
+		void clearStatistics() {
+			squaredError = 0.0;
+			samples = 0;
+			games = 0;
+			rejected = 0;
+		}
+
+		void clearGradient() {
+			Arrays.fill(gradient, 0.0f);
+			batchSamples = 0;
+		}
+
+		/**
+		 * replay one game record and accumulate the gradient of its samples
+		 */
+		void addGame(String line) {
+			int count = game.replay(line);
+			if (count < 0) {
+				++rejected;
+				return;
+			}
+			++games;
+
+			for (int k = 0; k < count; ++k) {
+				addSample(game.white[k], game.black[k], game.turn[k], game.label(k, count));
+			}
+		}
+
+		void addSample(long w, long b, int t, int label) {
+			long own = (t == OthelloBoard.WHITE) ? w : b;
+			long opp = (t == OthelloBoard.WHITE) ? b : w;
+			float[] p = parameters;
+
+			int n = 0;
+			for (long f = own; f != 0; f &= f - 1) {
+				inputs[n++] = BitUtil.ulog2(BitUtil.lowSetBit(f));
+			}
+			for (long f = opp; f != 0; f &= f - 1) {
+				inputs[n++] = NetworkEvaluator.OPPONENT + BitUtil.ulog2(BitUtil.lowSetBit(f));
+			}
+
+			// forward
+			System.arraycopy(p, hiddenBiasOffset, sums, 0, hidden);
+			for (int i = 0; i < n; ++i) {
+				int offset = inputs[i] * hidden;
+				for (int j = 0; j < hidden; ++j) {
+					sums[j] += p[offset + j];
+				}
+			}
+			float output = p[outputBiasOffset];
+			for (int j = 0; j < hidden; ++j) {
+				activations[j] = Math.min(Math.max(sums[j], 0.0f), 1.0f);
+				output += activations[j] * p[outputOffset + j];
+			}
+			float error = output - label;
+
+			// backward
+			float[] g = gradient;
+			g[outputBiasOffset] += error;
+			for (int j = 0; j < hidden; ++j) {
+				g[outputOffset + j] += error * activations[j];
+				// the clipped units pass no gradient; reuse sums for the hidden deltas
+				sums[j] = (sums[j] > 0.0f && sums[j] < 1.0f) ? error * p[outputOffset + j] : 0.0f;
+				g[hiddenBiasOffset + j] += sums[j];
+			}
+			for (int i = 0; i < n; ++i) {
+				int offset = inputs[i] * hidden;
+				for (int j = 0; j < hidden; ++j) {
+					g[offset + j] += sums[j];
+				}
+			}
+
+			squaredError += (double)error * error;
+			++samples;
+			++batchSamples;
+		}
+	}
+
+	/**
+	 * read the trainer's settings
+	 *
+	 * @return false if they are incomplete or malformed
+	 */
+	boolean readSettings(List<String> args) {
+		try {
+			gamesFile = OthelloAlphaBeta.findSetting(args, "Games");
+			if (gamesFile == null) {
+				return false;
+			}
+			String t = OthelloAlphaBeta.findSetting(args, "Hidden");
+			if (t != null) {
+				hidden = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Epochs");
+			if (t != null) {
+				epochs = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Rate");
+			if (t != null) {
+				rate = Double.parseDouble(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Seed");
+			if (t != null) {
+				seed = Long.parseLong(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Threads");
+			if (t != null) {
+				threads = Integer.parseInt(t);
+			}
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		return hidden >= 1 && hidden <= 1024 && epochs >= 1 && threads >= 1;
+	}
+
+	void initialize() {
+		hiddenBiasOffset = NetworkEvaluator.INPUTS * hidden;
+		outputOffset = hiddenBiasOffset + hidden;
+		outputBiasOffset = outputOffset + hidden;
+		parameters = new float[outputBiasOffset + 1];
+		moment1 = new double[parameters.length];
+		moment2 = new double[parameters.length];
+
+		// small random inputs, and biases that start every unit in its linear range
+		Random random = new Random(seed);
+		for (int i = 0; i < hiddenBiasOffset; ++i) {
+			parameters[i] = (random.nextFloat() - 0.5f) * 0.2f;
+		}
+		for (int j = 0; j < hidden; ++j) {
+			parameters[hiddenBiasOffset + j] = 0.5f;
+			parameters[outputOffset + j] = (random.nextFloat() - 0.5f) * 2.0f;
+		}
+
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; ++i) {
+			workers[i] = new Worker();
+		}
+	}
+
+	/**
+	 * stream the game file once, with one step per batch
+	 */
+	void runEpoch(ParallelTeam team) throws Exception {
+		for (Worker w : workers) {
+			w.clearStatistics();
+			w.clearGradient();
+		}
+
+		BufferedReader in = new BufferedReader(new FileReader(gamesFile), 1 << 16);
+		try {
+			final List<String> batch = new ArrayList<String>(BATCH_SIZE);
+			String line;
+
+			do {
+				batch.clear();
+				while (batch.size() < BATCH_SIZE && (line = in.readLine()) != null) {
+					if (line.trim().length() != 0 && !line.trim().startsWith("#")) {
+						batch.add(line);
+					}
+				}
+
+				if (!batch.isEmpty()) {
+					team.execute(new ParallelRegion() {
+						public void run() throws Exception {
+							Worker w = workers[getThreadIndex()];
+							for (int i = getThreadIndex(); i < batch.size(); i += threads) {
+								w.addGame(batch.get(i));
+							}
+						}
+					});
+
+					update();
+					for (Worker w : workers) {
+						w.clearGradient();
+					}
+				}
+			} while (batch.size() == BATCH_SIZE);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * merge the workers' gradients and take one Adam step
+	 */
+	void update() {
+		long n = 0;
+		for (Worker w : workers) {
+			n += w.batchSamples;
+		}
+		if (n == 0) {
+			return;
+		}
+
+		++steps;
+		double correction1 = 1.0 - Math.pow(BETA1, steps);
+		double correction2 = 1.0 - Math.pow(BETA2, steps);
+		for (int i = 0; i < parameters.length; ++i) {
+			double g = 0.0;
+			for (Worker w : workers) {
+				g += w.gradient[i];
+			}
+			g /= n;
+
+			moment1[i] = BETA1 * moment1[i] + (1.0 - BETA1) * g;
+			moment2[i] = BETA2 * moment2[i] + (1.0 - BETA2) * g * g;
+			double step = rate * (moment1[i] / correction1) / (Math.sqrt(moment2[i] / correction2) + EPSILON);
+
+			float limit = (i < outputOffset) ? MAX_INPUT_WEIGHT : MAX_OUTPUT_WEIGHT;
+			parameters[i] = (i == outputBiasOffset) ? (float)(parameters[i] - step) :
+				Math.max(-limit, Math.min(limit, (float)(parameters[i] - step)));
+		}
+	}
+
+	void save(String filename) throws IOException {
+		short[] input = new short[NetworkEvaluator.INPUTS * hidden];
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = EvaluatorTrainer.toShort(parameters[i] * NetworkEvaluator.ACTIVATION_SCALE);
+		}
+		short[] bias = new short[hidden];
+		short[] output = new short[hidden];
+		for (int j = 0; j < hidden; ++j) {
+			bias[j] = EvaluatorTrainer.toShort(parameters[hiddenBiasOffset + j] * NetworkEvaluator.ACTIVATION_SCALE);
+			output[j] = EvaluatorTrainer.toShort(parameters[outputOffset + j] * NetworkEvaluator.OUTPUT_SCALE);
+		}
+		int outputBias = (int)Math.round((double)parameters[outputBiasOffset] *
+				NetworkEvaluator.ACTIVATION_SCALE * NetworkEvaluator.OUTPUT_SCALE);
+
+		NetworkEvaluator evaluator = new NetworkEvaluator(hidden);
+		evaluator.setWeights(input, bias, output, outputBias);
+		evaluator.save(filename);
+	}
+
+	/**
+	 * @param args : Name=value settings, see the class comment
+	 */
+	public static void main(String[] args) {
+		try {
+			Comm.init(args);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		NetworkTrainer trainer = new NetworkTrainer();
+		List<String> settings = Arrays.asList(args);
+		if (!trainer.readSettings(settings)) {
+			System.out.println("Usage: NetworkTrainer Games=[file] [Hidden=n] [Epochs=n] [Rate=x] " +
+					"[Seed=n] [Threads=n] [Output=file]");
+			return;
+		}
+		String output = OthelloAlphaBeta.findSetting(settings, "Output");
+		if (output == null) {
+			output = "NetworkWeights.dat";
+		}
+
+		trainer.initialize();
+		ParallelTeam team = new ParallelTeam(trainer.threads);
+
+		System.out.println("epoch, games, rejected, samples, rmse (discs), time (ms)");
+		try {
+			for (int epoch = 0; epoch < trainer.epochs; ++epoch) {
+				long begin = System.currentTimeMillis();
+				trainer.runEpoch(team);
+
+				long games = 0, rejected = 0, samples = 0;
+				double squaredError = 0.0;
+				for (Worker w : trainer.workers) {
+					games += w.games;
+					rejected += w.rejected;
+					samples += w.samples;
+					squaredError += w.squaredError;
+				}
+				if (samples == 0) {
+					System.out.println("No usable games in " + trainer.gamesFile);
+					return;
+				}
+
+				// the error of each sample is measured before the step that uses it
+				System.out.println(epoch + ", " + games + ", " + rejected + ", " + samples + ", " +
+						String.format("%.3f", Math.sqrt(squaredError / samples)) + ", " +
+						(System.currentTimeMillis() - begin));
+			}
+		} catch (IOException e) {
+			System.out.println("Error reading games");
+			e.printStackTrace();
+			return;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return;
+		}
+
+		try {
+			trainer.save(output);
+			System.out.println("Weights written to " + output);
+		} catch (IOException e) {
+			System.out.println("Error writing weights");
+			e.printStackTrace();
+		}
+	}
+}
@@ -3,6 +3,7 @@ package core;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.*;
@@ -21,13 +22,46 @@ public class OthelloAlphaBeta {
 	boolean displayToConsole = false;
 
 	int minDepthToStore = 3;
-	int valueOfDraw = -3;
+	int valueOfDraw = -3 * DISC;
 	int maxSearchDepth = 12;
 	int levelsToSort = 3;
+	int minStabilityDepth = 2; // shallowest node that tries a stability cutoff
+	int minEtcDepth = 4; // shallowest unsorted node that probes its children's entries first
+	int minShallowOrderingDepth = 7; // shallowest sorted node that orders by shallow searches
+	int shallowOrderingSearchDepth = 1; // depth of those searches
+	boolean lateMoveReductions = false; // selective: search late moves of unsorted nodes at reduced depth first
+	int minReductionDepth = 4; // shallowest unsorted node that reduces its late moves
+	int fullDepthMoves = 3; // moves searched at full depth before the reductions start
+	int depthReduction = 2; // plies taken off a reduced move; even, so the leaves keep the same side to move
+	int[] aspirationWidths = {2 * DISC, 8 * DISC, 32 * DISC}; // successive half-widths of a failing side of an aspiration window
 
+	/*
+	 * Scores are disc differences from the point of view of the player to
+	 * move, in units of 1/DISC disc. Evaluations are estimates in the same
+	 * units, kept strictly inside (-PROVEN_WIN, PROVEN_WIN). An ended game
+	 * scores PROVEN_WIN plus its disc difference if won, -PROVEN_WIN plus its
+	 * disc difference if lost, and valueOfDraw if drawn, so every proven
+	 * result is outside the evaluations and orders by the final difference.
+	 * All scores fit in 16 bits; NOSCORE is never stored.
+	 *
+	 * The proven band sits next to the ends of the range, so the window keys
+	 * that order children (windowKey(), BoardAndWindow) treat a proven
+	 * result almost like an unbounded one.
+	 */
+	public static final int SCORE_SHIFT = 3;
+	public static final int DISC = 1 << SCORE_SHIFT;
+	public static final int PROVEN_WIN = Short.MAX_VALUE - 1 - 128 * DISC;
 	public static final int NOSCORE = 0x80000000;
-	public static final int LOWESTSCORE = 0x80000001;
-	public static final int HIGHESTSCORE = 0x7FFFFFFF;
+	public static final int LOWESTSCORE = -Short.MAX_VALUE;
+	public static final int HIGHESTSCORE = Short.MAX_VALUE;
+
+	// positions with this many discs or fewer use canonical table keys, and
+	// their symmetric children are searched once
+	static final int CANONICAL_DISCS = 14;
+
+	// bonuses added to shallow-search ordering scores
+	static final int ORDERING_MOBILITY_WEIGHT = 2 * DISC; // per reply left to the opponent
+	static final int ORDERING_CORNER_BONUS = 8 * DISC;
 
 	public static final int WHITE = 0;
 	public static final int BLACK = 1;
@@ -36,8 +70,22 @@ public class OthelloAlphaBeta {
 	long leafCount = 0;
 	long nodesSearched = 0;
 	int nodesRetrieved = 0;
+	int windowsSearched = 0; // root searches made by iterativeAlphaBeta()
 
 	int maxTableEntries = 750000;
+	boolean compactTable = false; // use CompactTranspositionTable instead of a HashMap
+
+	LeafEvaluator leafEvaluator = new SimpleEvaluator();
+	ProbCut probCut = null; // Multi-ProbCut models; null for a full-width search
+	ChildBatch childBatch = new ChildBatch(); // children of the current depth-1 node
+	MoveOrdering moveOrdering = new MoveOrdering(maxSearchDepth + 2); // killers and history for unsorted nodes
+
+	// per-ply statistics, only allocated when SearchProfile.ENABLED
+	SearchProfile profile = SearchProfile.ENABLED ? new SearchProfile() : null;
+	String profileOutput = null; // file to write the profile to after a search
+
+	// optional binary trace of the top plies of the tree
+	SearchTracer tracer = null;
 
 	protected OthelloBitBoard rootNode = null; // position to begin analysis
 	protected int rootNodeTurn; //the current player turn (WHITE or BLACK) for root node
@@ -67,11 +115,19 @@ public class OthelloAlphaBeta {
 	/*
 	 * This class is needed because the depth of the board when analyzed must
 	 * be included and factored into the hashcode.
+	 *
+	 * Positions with at most CANONICAL_DISCS discs are stored in canonical
+	 * form, so symmetric positions near the root share one entry. A symmetric
+	 * image has the same score, so the stored board can also be searched in
+	 * place of the original.
 	 */
 	protected static class BoardAndDepth extends OthelloBitBoard {
 		int hashMod;
 
 		public BoardAndDepth(OthelloBitBoard board, int depth, int turn) {
+			if (EvaluationStages.discs(board) <= CANONICAL_DISCS) {
+				board = board.canonical();
+			}
 			white = board.white;
 			black = board.black;
 			this.hashMod = (depth << 1) | turn;
@@ -81,6 +137,13 @@ public class OthelloAlphaBeta {
 			return super.hashCode() ^ (hashMod * 136385313);
 		}
 
+		/**
+		 * @return 64-bit key including depth and turn, for CompactTranspositionTable
+		 */
+		public long key64() {
+			return hash64() ^ Rom.HASH64[4096 | (hashMod & 0xFF)];
+		}
+
 		public boolean equals(Object other) {
 			return super.equals(other) &&
 				(other instanceof BoardAndDepth) &&
@@ -158,6 +221,10 @@ public class OthelloAlphaBeta {
 	 * @return the value of the best score found
 	 */
 	public int alphaBetaSearch(int alpha, int beta) {
+		if (tracer != null) {
+			tracer.beginSearch(maxSearchDepth, alpha, beta);
+		}
+
 		if (levelsToSort <= 0) {
 			if (maxSearchDepth <= minDepthToStore) {
 				scoreOfConfiguration = alphaBetaNoTable(rootNode, alpha, beta, rootNodeTurn, maxSearchDepth);
@@ -171,6 +238,119 @@ public class OthelloAlphaBeta {
 		return scoreOfConfiguration;
 	}
 
+	/**
+	 * alpha-beta in an iterative framework: depths of the same parity as
+	 * maxSearchDepth are searched in turn, each with an aspiration window
+	 * around the score of the one before (see aspirationSearch()), so the
+	 * table holds bounds and moves from the shallower search
+	 *
+	 * @param alpha : lower bound on the window of every search
+	 * @param beta : upper bound on the window of every search
+	 * @return the value of the best score found
+	 */
+	public int iterativeAlphaBeta(int alpha, int beta) {
+		int guess = NOSCORE;
+
+		int finalMaxDepth = maxSearchDepth;
+
+		//repeat for 2, 4, 6, 8, etc depth, as iterative MTD(f) does
+		for (maxSearchDepth = (finalMaxDepth & 1);
+			maxSearchDepth <= finalMaxDepth;
+			maxSearchDepth += 2) {
+			SearchEvents.IterationEvent event = new SearchEvents.IterationEvent();
+			long nodesBefore = nodesSearched;
+			long leavesBefore = leafCount;
+			int windowsBefore = windowsSearched;
+			event.begin();
+			event.guess = guess;
+
+			guess = aspirationSearch(guess, alpha, beta);
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.depth = maxSearchDepth;
+				event.result = guess;
+				event.passes = windowsSearched - windowsBefore;
+				event.nodes = nodesSearched - nodesBefore;
+				event.leaves = leafCount - leavesBefore;
+				event.commit();
+			}
+		}
+
+		maxSearchDepth = finalMaxDepth;
+		scoreOfConfiguration = guess;
+
+		return guess;
+	}
+
+	/**
+	 * search the root with a window of aspirationWidths[0] around the guess.
+	 * A side that fails is moved past the returned score by the next width,
+	 * and once the widths run out, to the bound given. Windows only grow, so
+	 * this ends after at most 2 * aspirationWidths.length + 1 searches.
+	 *
+	 * @param guess : expected score, or NOSCORE to search the full window
+	 * @param alpha : lower bound on every window
+	 * @param beta : upper bound on every window
+	 * @return the value of the best score found
+	 */
+	protected int aspirationSearch(int guess, int alpha, int beta) {
+		int[] widths = aspirationWidths;
+		long a = alpha;
+		long b = beta;
+		if (guess != NOSCORE && widths.length > 0) {
+			a = Math.max(alpha, (long)guess - widths[0]);
+			b = Math.min(beta, (long)guess + widths[0]);
+		}
+		int low = 0;
+		int high = 0;
+
+		while (true) {
+			if (SearchProfile.ENABLED) {
+				profile.beginSegment("alphabeta depth " + maxSearchDepth, maxSearchDepth, (int)a, (int)b);
+			}
+			int score = windowSearch((int)a, (int)b);
+			++windowsSearched;
+			if (SearchProfile.ENABLED) {
+				profile.endSegment(score);
+			}
+			if (displayToConsole) {
+				System.out.println("Depth " + maxSearchDepth + " window [" + a + ", " + b + "] = " + score);
+			}
+
+			if (score <= a && a > alpha) { // failed low
+				a = (++low < widths.length) ? Math.max(alpha, (long)score - widths[low]) : alpha;
+			} else if (score >= b && b < beta) { // failed high
+				b = (++high < widths.length) ? Math.min(beta, (long)score + widths[high]) : beta;
+			} else {
+				return score;
+			}
+		}
+	}
+
+	/**
+	 * one root search of iterativeAlphaBeta()
+	 */
+	protected int windowSearch(int alpha, int beta) {
+		return alphaBetaSearch(alpha, beta);
+	}
+
+	/**
+	 * search the root to a shallow depth for the first guess of a deeper
+	 * search. The shallow search fills the table too, so its best moves
+	 * order the first pass.
+	 *
+	 * @param depth : depth of the shallow search
+	 * @return the guess for a search to maxSearchDepth
+	 */
+	public int preSearch(int depth) {
+		int finalMaxDepth = maxSearchDepth;
+		maxSearchDepth = Math.min(depth, finalMaxDepth);
+		int estimate = alphaBetaSearch();
+		maxSearchDepth = finalMaxDepth;
+		return estimate;
+	}
+
 	/**
 	 * negamax search with Alpha-beta pruning, with transpositions and sorting
 	 * intended for near-root searching
@@ -186,8 +366,18 @@ public class OthelloAlphaBeta {
 			int turn, int depth) {
 		BoardAndDepth storedBoard = new BoardAndDepth(position, depth, turn);
 		Window storedWindow = transpositionTable.get(storedBoard);
+		int ply = maxSearchDepth - depth;
+		boolean traced = tracer != null && tracer.traces(ply);
+		byte traceFlags = (storedWindow != null) ? SearchTracer.TABLE_HIT : 0;
 
 		++nodesSearched;
+		if (SearchProfile.ENABLED) {
+			profile.node(ply);
+			profile.tableProbe(ply, storedWindow != null);
+		}
+		if (traced) {
+			tracer.enter(ply, depth, turn, position, alpha, beta);
+		}
 
 		if (storedWindow != null)
 		{
@@ -195,9 +385,13 @@ public class OthelloAlphaBeta {
 
 			//if we know that this stored position
 			if (storedWindow.alpha >= beta) {
+				if (SearchProfile.ENABLED) profile.tableCutoff(ply);
+				if (traced) tracer.exit(ply, storedWindow.alpha, (byte)(traceFlags | SearchTracer.TABLE_CUTOFF));
 				return storedWindow.alpha;
 			}
 			if (storedWindow.beta <= alpha) {
+				if (SearchProfile.ENABLED) profile.tableCutoff(ply);
+				if (traced) tracer.exit(ply, storedWindow.beta, (byte)(traceFlags | SearchTracer.TABLE_CUTOFF));
 				return storedWindow.beta;
 			}
 
@@ -209,57 +403,96 @@ public class OthelloAlphaBeta {
 		}
 
 		if (alpha == beta) {
+			if (SearchProfile.ENABLED) profile.tableCutoff(ply);
+			if (traced) tracer.exit(ply, alpha, (byte)(traceFlags | SearchTracer.TABLE_CUTOFF));
 			return alpha; // move was already fully determined and stored
 		}
 
+		if (ply > 0 && depth >= minStabilityDepth) { // the root must leave its moves in the table
+			int bound = stabilityBound(position, alpha, beta, turn);
+			if (bound != NOSCORE) {
+				if (SearchProfile.ENABLED) profile.earlyCutoff(ply);
+				if (traced) tracer.exit(ply, bound, traceFlags);
+				return bound;
+			}
+		}
+
+		if (ply > 0 && probCut != null) {
+			int bound = probCut(position, alpha, beta, turn, depth);
+			if (bound != NOSCORE) {
+				if (SearchProfile.ENABLED) profile.earlyCutoff(ply);
+				if (traced) tracer.exit(ply, bound, traceFlags);
+				return bound;
+			}
+		}
+
 		int bestScore = NOSCORE;
 
-		Vector<BoardAndWindow> moveList = new Vector<BoardAndWindow>();
+		boolean symmetric = EvaluationStages.discs(position) < CANONICAL_DISCS;
+		boolean etc = ply > 0 && depth - 1 >= minDepthToStore;
+		boolean shallowOrdering = depth >= minShallowOrderingDepth && shallowOrderingSearchDepth < depth - 1;
 
-		for (long likelyMoves = position.generateLikelyMoves(turn);
-				likelyMoves != 0;
-				likelyMoves &= (likelyMoves - 1)) {
-			int movePos = BitUtil.ulog2(BitUtil.lowSetBit(likelyMoves));
-			int moveX = OthelloBitBoard.xyTox(movePos);
-			int moveY = OthelloBitBoard.xyToy(movePos);
+		ChildBatch moveList = moveOrdering.children(ply);
+		int expanded = moveList.expand(position, turn);
+		int moveCount = 0;
+		moveList.clearSymmetric();
 
-			if (!position.moveIsLegal(moveX, moveY, turn)) {
-				continue;
+		for (int i = 0; i < expanded; ++i) {
+			if (symmetric && moveList.isSymmetricDuplicate(moveList.white[i], moveList.black[i])) {
+				continue; // same score as a sibling already in the list
 			}
-
-			OthelloBitBoard newPosition = position.copyAndMakeMove(moveX, moveY, turn);
+			OthelloBitBoard newPosition = new OthelloBitBoard(moveList.white[i], moveList.black[i]);
 
 			//search the table for the most well-searched window relating to this new position
 			Window tWindow = null;
-			for (int i = maxSearchDepth; i >= minDepthToStore && tWindow == null; --i) {
-				tWindow = transpositionTable.get(new BoardAndDepth(newPosition, i, turn ^ 1));
+			int tDepth;
+			for (tDepth = maxSearchDepth; tDepth >= minDepthToStore && tWindow == null; --tDepth) {
+				tWindow = transpositionTable.get(new BoardAndDepth(newPosition, tDepth, turn ^ 1));
 			}
 
-			if (tWindow == null) {
-				tWindow = new Window(LOWESTSCORE, HIGHESTSCORE);
+			// enhanced transposition cutoff: a child already known to be bad
+			// enough for the opponent refutes this node without a search
+			if (etc) {
+				Window childWindow = (tDepth + 1 == depth - 1) ? tWindow :
+					(tDepth + 1 > depth - 1) ? transpositionTable.get(
+						new BoardAndDepth(newPosition, depth - 1, turn ^ 1)) : null;
+				if (childWindow != null && -childWindow.beta >= beta) {
+					return etcCutoff(storedBoard, storedWindow, -childWindow.beta, ply, traced, traceFlags);
+				}
 			}
 
-			moveList.add(new BoardAndWindow(newPosition, tWindow)); //add entry and known info to list
+			moveList.moveChild(i, moveCount); //add entry and known info to list
+			moveList.keys[moveCount] = shallowOrdering ?
+					orderingScore(newPosition, moveList.squares[moveCount], tWindow, turn) :
+					windowKey(tWindow);
+			++moveCount;
 		}
 
-		Collections.sort(moveList); // sort, placing most likely to cutoff first
+		moveList.count = moveCount;
+		moveList.sortByKeys(); // sort, placing most likely to cutoff first
+
+		if (SearchProfile.ENABLED) profile.expanded(ply, moveCount);
+
+		for (int moveIndex = 0; moveIndex < moveCount; ++moveIndex) {
+			OthelloBitBoard newPosition = new OthelloBitBoard(
+					moveList.white[moveIndex], moveList.black[moveIndex]);
 
-		for (BoardAndWindow p : moveList) {
 			int newScore;
 			if (depth <= 1) { // base case
-				newScore = evaluateLeaf(p.board, turn);
+				newScore = evaluateLeaf(newPosition, turn);
 				++leafCount;
+				if (SearchProfile.ENABLED) profile.leaf(ply + 1);
 			} else {// recurse
 				if (maxSearchDepth - depth >= levelsToSort) {
 					if (depth - 1 < minDepthToStore) {
-						newScore = -alphaBetaNoTable(p.board, -beta, -Math.max(
+						newScore = -alphaBetaNoTable(newPosition, -beta, -Math.max(
 								alpha, bestScore), turn ^ 1, depth - 1);
 					} else {
-						newScore = -alphaBetaNoSort(p.board, -beta, -Math.max(
+						newScore = -alphaBetaNoSort(newPosition, -beta, -Math.max(
 								alpha, bestScore), turn ^ 1, depth - 1);
 					}
 				} else  {
-					newScore = -alphaBetaSorted(p.board, -beta, -Math.max(
+					newScore = -alphaBetaSorted(newPosition, -beta, -Math.max(
 							alpha, bestScore), turn ^ 1, depth - 1);
 				}
 			}
@@ -268,6 +501,7 @@ public class OthelloAlphaBeta {
 				bestScore = newScore;
 
 				if (bestScore >= beta) {// prune this branch
+					if (SearchProfile.ENABLED) profile.cutoff(ply, moveIndex);
 					break;
 				}
 			}
@@ -276,6 +510,7 @@ public class OthelloAlphaBeta {
 		if (bestScore == NOSCORE) { // if NO move was found... the game is over here
 			if (position.canMove(turn ^ 1)) {
 				// player loses turn
+				if (SearchProfile.ENABLED) profile.pass(ply);
 				if (maxSearchDepth - depth >= levelsToSort) {
 					if (depth - 1 < minDepthToStore) {
 						bestScore = -alphaBetaNoTable(position, -beta, -alpha, turn ^ 1, depth - 1);
@@ -303,6 +538,7 @@ public class OthelloAlphaBeta {
 			transpositionTable.put(storedBoard, storedWindow); // store results for future lookup
 		}
 
+		if (traced) tracer.exit(ply, bestScore, traceFlags);
 		return bestScore;
 	}
 
@@ -322,8 +558,18 @@ public class OthelloAlphaBeta {
 			int turn, int depth) {
 		BoardAndDepth storedBoard = new BoardAndDepth(position, depth, turn);
 		Window storedWindow = transpositionTable.get(storedBoard);
+		int ply = maxSearchDepth - depth;
+		boolean traced = tracer != null && tracer.traces(ply);
+		byte traceFlags = (storedWindow != null) ? SearchTracer.TABLE_HIT : 0;
 
 		++nodesSearched;
+		if (SearchProfile.ENABLED) {
+			profile.node(ply);
+			profile.tableProbe(ply, storedWindow != null);
+		}
+		if (traced) {
+			tracer.enter(ply, depth, turn, position, alpha, beta);
+		}
 
 		if (storedWindow != null)
 		{
@@ -331,9 +577,13 @@ public class OthelloAlphaBeta {
 
 			//if we know that this stored position
 			if (storedWindow.alpha >= beta) {
+				if (SearchProfile.ENABLED) profile.tableCutoff(ply);
+				if (traced) tracer.exit(ply, storedWindow.alpha, (byte)(traceFlags | SearchTracer.TABLE_CUTOFF));
 				return storedWindow.alpha;
 			}
 			if (storedWindow.beta <= alpha) {
+				if (SearchProfile.ENABLED) profile.tableCutoff(ply);
+				if (traced) tracer.exit(ply, storedWindow.beta, (byte)(traceFlags | SearchTracer.TABLE_CUTOFF));
 				return storedWindow.beta;
 			}
 
@@ -345,35 +595,70 @@ public class OthelloAlphaBeta {
 		}
 
 		if (alpha == beta) {
+			if (SearchProfile.ENABLED) profile.tableCutoff(ply);
+			if (traced) tracer.exit(ply, alpha, (byte)(traceFlags | SearchTracer.TABLE_CUTOFF));
 			return alpha; // move was already fully determined and stored
 		}
 
-		int bestScore = NOSCORE;
+		if (depth >= minStabilityDepth) {
+			int bound = stabilityBound(position, alpha, beta, turn);
+			if (bound != NOSCORE) {
+				if (SearchProfile.ENABLED) profile.earlyCutoff(ply);
+				if (traced) tracer.exit(ply, bound, traceFlags);
+				return bound;
+			}
+		}
 
-		for (long likelyMoves = position.generateLikelyMoves(turn);
-				likelyMoves != 0;
-				likelyMoves &= (likelyMoves - 1)) {
-			int movePos = BitUtil.ulog2(BitUtil.lowSetBit(likelyMoves));
-			int moveX = OthelloBitBoard.xyTox(movePos);
-			int moveY = OthelloBitBoard.xyToy(movePos);
+		if (depth >= minEtcDepth && depth - 1 >= minDepthToStore) {
+			int bound = transpositionCutoff(position, beta, turn, depth);
+			if (bound != NOSCORE) {
+				return etcCutoff(storedBoard, storedWindow, bound, ply, traced, traceFlags);
+			}
+		}
 
-			if (!position.moveIsLegal(moveX, moveY, turn)) {
-				continue;
+		if (probCut != null) {
+			int bound = probCut(position, alpha, beta, turn, depth);
+			if (bound != NOSCORE) {
+				if (SearchProfile.ENABLED) profile.earlyCutoff(ply);
+				if (traced) tracer.exit(ply, bound, traceFlags);
+				return bound;
 			}
+		}
+
+		int bestScore = NOSCORE;
+		int moveIndex = 0;
 
-			OthelloBitBoard newPosition = position.copyAndMakeMove(moveX, moveY, turn);
+		if (SearchProfile.ENABLED) profile.expanded(ply, countLegalMoves(position, turn));
+
+		int moveCount = moveOrdering.order(position, turn, ply);
+		int[] moves = moveOrdering.moves[ply];
+
+		// late moves are reduced only where the reduced search cannot reach
+		// the end of the game, so endgame scores stay exact
+		int reduceFrom = (lateMoveReductions && depth >= minReductionDepth &&
+				depth - 1 - depthReduction >= 1 && depth < 64 - EvaluationStages.discs(position)) ?
+				fullDepthMoves : moveCount;
+
+		for (; moveIndex < moveCount; ++moveIndex) {
+			int movePos = moves[moveIndex];
+			OthelloBitBoard newPosition = position.copyAndMakeMove(
+					OthelloBitBoard.xyTox(movePos), OthelloBitBoard.xyToy(movePos), turn);
 
 			int newScore;
 			if (depth <= 1) { // base case
 				newScore = evaluateLeaf(newPosition, turn);
 				++leafCount;
+				if (SearchProfile.ENABLED) profile.leaf(ply + 1);
 			} else {//recurse
-				if (depth - 1 < minDepthToStore) {
-					newScore = -alphaBetaNoTable(newPosition, -beta,
-							-Math.max(alpha, bestScore), turn ^ 1, depth - 1);
-				} else {
-					newScore = -alphaBetaNoSort(newPosition, -beta,
-							-Math.max(alpha, bestScore), turn ^ 1, depth - 1);
+				int a = Math.max(alpha, bestScore);
+				newScore = NOSCORE;
+				if (moveIndex >= reduceFrom) {
+					// null window at reduced depth; only a move that beats
+					// alpha there is searched again in full
+					newScore = -reducedSearch(newPosition, -a - 1, -a, turn ^ 1, depth - 1 - depthReduction);
+				}
+				if (newScore == NOSCORE || newScore > a) {
+					newScore = -reducedSearch(newPosition, -beta, -a, turn ^ 1, depth - 1);
 				}
 			}
 
@@ -381,6 +666,8 @@ public class OthelloAlphaBeta {
 				bestScore = newScore;
 
 				if (bestScore >= beta) {// prune this branch
+					if (SearchProfile.ENABLED) profile.cutoff(ply, moveIndex);
+					moveOrdering.cutoff(movePos, turn, ply, depth);
 					break;
 				}
 			}
@@ -389,6 +676,7 @@ public class OthelloAlphaBeta {
 		if (bestScore == NOSCORE) { // if NO move was found... the game is over here
 			if (position.canMove(turn ^ 1)) {
 				// player loses turn
+				if (SearchProfile.ENABLED) profile.pass(ply);
 				if (depth - 1 < minDepthToStore) {
 					bestScore = -alphaBetaNoTable(position, -beta, -alpha, turn ^ 1, depth - 1);
 				} else {
@@ -412,6 +700,7 @@ public class OthelloAlphaBeta {
 			transpositionTable.put(storedBoard, storedWindow); // store results for future lookup
 		}
 
+		if (traced) tracer.exit(ply, bestScore, traceFlags);
 		return bestScore;
 	}
 
@@ -428,36 +717,70 @@ public class OthelloAlphaBeta {
 	 */
 	protected int alphaBetaNoTable(OthelloBitBoard position, int alpha, int beta,
 			int turn, int depth) {
+		int ply = maxSearchDepth - depth;
+		boolean traced = tracer != null && tracer.traces(ply);
 		++nodesSearched;
 		int bestScore = NOSCORE;
+		int moveIndex = 0;
 
-		for (long likelyMoves = position.generateLikelyMoves(turn);
-				likelyMoves != 0;
-				likelyMoves &= (likelyMoves - 1)) {
-			int movePos = BitUtil.ulog2(BitUtil.lowSetBit(likelyMoves));
-			int moveX = OthelloBitBoard.xyTox(movePos);
-			int moveY = OthelloBitBoard.xyToy(movePos);
+		if (SearchProfile.ENABLED) {
+			profile.node(ply);
+			profile.expanded(ply, countLegalMoves(position, turn));
+		}
+		if (traced) {
+			tracer.enter(ply, depth, turn, position, alpha, beta);
+		}
 
-			if (!position.moveIsLegal(moveX, moveY, turn)) {
-				continue;
+		if (depth >= minStabilityDepth) {
+			int bound = stabilityBound(position, alpha, beta, turn);
+			if (bound != NOSCORE) {
+				if (SearchProfile.ENABLED) profile.earlyCutoff(ply);
+				if (traced) tracer.exit(ply, bound, (byte)0);
+				return bound;
 			}
+		}
 
-			OthelloBitBoard newPosition = position.copyAndMakeMove(moveX, moveY, turn);
+		if (depth <= 1) { // base case: expand and score all children at once
+			ChildBatch batch = childBatch;
+			batch.expand(position, turn);
+			batch.order(moveOrdering, turn, ply);
+			int scored = batch.evaluate(leafEvaluator, turn, beta);
+			leafCount += scored;
+
+			for (int i = 0; i < scored; ++i) {
+				if (SearchProfile.ENABLED) profile.leaf(ply + 1);
+				if (batch.scores[i] > bestScore) {
+					bestScore = batch.scores[i];
+
+					if (bestScore >= beta) {
+						if (SearchProfile.ENABLED) profile.cutoff(ply, i);
+						moveOrdering.cutoff(batch.squares[i], turn, ply, depth);
+						if (traced) tracer.exit(ply, bestScore, (byte)0);
+						return bestScore; // prune this branch
+					}
+				}
+			}
+		} else {
+			int moveCount = moveOrdering.order(position, turn, ply);
+			int[] moves = moveOrdering.moves[ply];
 
-			int newScore;
-			if (depth <= 1) { // base case
-				newScore = evaluateLeaf(newPosition, turn);
-				++leafCount;
-			} else {//recurse
-				newScore = -alphaBetaNoTable(newPosition, -beta,
+			for (; moveIndex < moveCount; ++moveIndex) {
+				int movePos = moves[moveIndex];
+				OthelloBitBoard newPosition = position.copyAndMakeMove(
+						OthelloBitBoard.xyTox(movePos), OthelloBitBoard.xyToy(movePos), turn);
+
+				int newScore = -alphaBetaNoTable(newPosition, -beta,
 						-Math.max(alpha, bestScore), turn ^ 1, depth - 1);
-			}
 
-			if (newScore > bestScore) {
-				bestScore = newScore;
+				if (newScore > bestScore) {
+					bestScore = newScore;
 
-				if (bestScore >= beta) {
-					return bestScore; // prune this branch
+					if (bestScore >= beta) {
+						if (SearchProfile.ENABLED) profile.cutoff(ply, moveIndex);
+						moveOrdering.cutoff(movePos, turn, ply, depth);
+						if (traced) tracer.exit(ply, bestScore, (byte)0);
+						return bestScore; // prune this branch
+					}
 				}
 			}
 		}
@@ -465,6 +788,7 @@ public class OthelloAlphaBeta {
 		if (bestScore == NOSCORE) { // if NO move was found...
 			if (position.canMove(turn ^ 1)) {
 				// player loses turn
+				if (SearchProfile.ENABLED) profile.pass(ply);
 				bestScore = -alphaBetaNoTable(position, -beta, -alpha, turn ^ 1, depth - 1);
 			} else {
 				//end of game
@@ -472,37 +796,206 @@ public class OthelloAlphaBeta {
 			}
 		}
 
+		if (traced) tracer.exit(ply, bestScore, (byte)0);
 		return bestScore;
 	}
 
 	/**
-	 * estimates the value of the position for use in leaf nodes
+	 * Multi-ProbCut: predict the result of this node's search from shallow
+	 * null-window searches (see ProbCut). If a shallow search puts the
+	 * prediction at or above beta (or at or below alpha) with the configured
+	 * confidence, the node is cut with that window bound. Nodes whose search
+	 * reaches the end of the game are always searched in full, so endgame
+	 * scores stay exact.
 	 *
-	 * @param position : current position
-	 * @param turn: who's turn (WHITE or BLACK)
-	 * @return an estimation of the 'quality' of this positon
+	 * The cut node stores nothing itself, but its parent stores the usual
+	 * bound from the returned value, so a cut does reach the table through
+	 * its ancestors and later searches of those positions can inherit it.
+	 *
+	 * @return beta or alpha if the node is cut, or NOSCORE
 	 */
-	public static int evaluateLeaf(OthelloBitBoard position, int turn) {
-		return evaluateStateForPlayer(position, turn) - evaluateStateForPlayer(position, turn ^ 1);
+	protected int probCut(OthelloBitBoard position, int alpha, int beta, int turn, int depth) {
+		int discs = EvaluationStages.discs(position);
+		if (depth >= 64 - discs) {
+			return NOSCORE;
+		}
+
+		for (int p = probCut.firstPair(depth); p >= 0 && p < probCut.deep.length &&
+				probCut.deep[p] == depth; ++p) {
+			int shallowDepth = probCut.shallow[p];
+
+			if (beta < ProbCut.SCORE_LIMIT) {
+				int bound = probCut.highBound(p, discs, beta);
+				if (bound != NOSCORE && reducedSearch(position, bound - 1, bound, turn, shallowDepth) >= bound) {
+					return beta;
+				}
+			}
+			if (alpha > -ProbCut.SCORE_LIMIT) {
+				int bound = probCut.lowBound(p, discs, alpha);
+				if (bound != NOSCORE && reducedSearch(position, bound, bound + 1, turn, shallowDepth) <= bound) {
+					return alpha;
+				}
+			}
+		}
+		return NOSCORE;
+	}
+
+	/**
+	 * search a position to a reduced depth with the kernel for that depth
+	 */
+	private int reducedSearch(OthelloBitBoard position, int alpha, int beta, int turn, int depth) {
+		if (depth < minDepthToStore) {
+			return alphaBetaNoTable(position, alpha, beta, turn, depth);
+		} else {
+			return alphaBetaNoSort(position, alpha, beta, turn, depth);
+		}
+	}
+
+	/**
+	 * ordering key of a child from its table window, as BoardAndWindow sorts:
+	 * mostly by the child's lower bound, then its upper bound, lowest first
+	 */
+	static int windowKey(Window w) {
+		if (w == null) {
+			return -((LOWESTSCORE >> 1) + (HIGHESTSCORE >> 4));
+		}
+		return -((w.alpha >> 1) + (w.beta >> 4));
 	}
 
 	/**
-	 * internal function that guages the quality of the board with respect to a player
+	 * Ordering key of a child at a node with a lot of depth left: an estimate
+	 * of the move's score plus mobility and corner bonuses. A child with a
+	 * bound in the table is estimated from it; any other child gets a full
+	 * window search of shallowOrderingSearchDepth plies. The bonuses prefer
+	 * moves that leave the opponent few replies, and corners.
 	 *
-	 * @param position
-	 * @param state
-	 * @return quality for a certain player
+	 * @param child : position after the move
+	 * @param square : the move
+	 * @param tWindow : deepest table entry of the child, or null
+	 * @param turn : player who made the move
+	 * @return key, higher is searched first
+	 */
+	protected int orderingScore(OthelloBitBoard child, int square, Window tWindow, int turn) {
+		long score;
+		if (tWindow != null && tWindow.alpha == tWindow.beta) {
+			score = -(long)tWindow.alpha;
+		} else if (tWindow != null && tWindow.alpha != LOWESTSCORE && tWindow.beta != HIGHESTSCORE) {
+			score = -(((long)tWindow.alpha + tWindow.beta) >> 1);
+		} else if (tWindow != null && tWindow.beta != HIGHESTSCORE) {
+			score = -(long)tWindow.beta; // the move is worth at least this
+		} else if (tWindow != null && tWindow.alpha != LOWESTSCORE) {
+			score = -(long)tWindow.alpha; // the move is worth at most this
+		} else {
+			score = -(long)alphaBetaNoTable(child, LOWESTSCORE, HIGHESTSCORE, turn ^ 1,
+					shallowOrderingSearchDepth);
+		}
+
+		score -= ORDERING_MOBILITY_WEIGHT * BitUtil.countSetBits(child.generateMoves(turn ^ 1));
+		if (((1L << square) & SimpleEvaluator.CORNER_MASK) != 0) {
+			score += ORDERING_CORNER_BONUS;
+		}
+		return (int)Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, score));
+	}
+
+	/**
+	 * Enhanced transposition cutoff: look up every child at the next depth
+	 * before searching any of them. If one is stored with an upper bound at
+	 * or below -beta, this node fails high with that score and no child has
+	 * to be searched. This pays off in the null-window passes of MTD(f), where
+	 * a cutoff move found through a transposition is often not the first move
+	 * generated.
+	 *
+	 * @return a lower bound >= beta, or NOSCORE if there is no cutoff
 	 */
-	private static int evaluateStateForPlayer(OthelloBitBoard position, int state) {
-		int pieceScore = position.countPieces(state);
-		int positionScore = 0;
+	protected int transpositionCutoff(OthelloBitBoard position, int beta, int turn, int depth) {
+		long own = (turn == WHITE) ? position.white : position.black;
+		long opp = (turn == WHITE) ? position.black : position.white;
+		OthelloBitBoard child = new OthelloBitBoard();
+
+		for (long moves = OthelloBitBoard.generateMoves(own, opp); moves != 0; moves &= moves - 1) {
+			int sq = BitUtil.ulog2(BitUtil.lowSetBit(moves));
+			long f = OthelloBitBoard.flips(own, opp, sq);
+			long newOwn = own | f | (1L << sq);
+			long newOpp = opp & ~f;
+			child.white = (turn == WHITE) ? newOwn : newOpp;
+			child.black = (turn == WHITE) ? newOpp : newOwn;
+
+			Window w = transpositionTable.get(new BoardAndDepth(child, depth - 1, turn ^ 1));
+			if (w != null && -w.beta >= beta) {
+				return -w.beta;
+			}
+		}
+		return NOSCORE;
+	}
 
-		long cBoard = (state == WHITE) ? position.white : position.black;
+	/**
+	 * store and return the score of an enhanced transposition cutoff
+	 */
+	private int etcCutoff(BoardAndDepth storedBoard, Window storedWindow, int score,
+			int ply, boolean traced, byte traceFlags) {
+		if (SearchProfile.ENABLED) profile.earlyCutoff(ply);
+		storedWindow.alpha = score; // we know that the score is at LEAST this good
+		if (transpositionTable.size() < maxTableEntries) {
+			transpositionTable.put(storedBoard, storedWindow);
+		}
+		if (traced) tracer.exit(ply, score, traceFlags);
+		return score;
+	}
 
-		positionScore += 2*BitUtil.countSetBits(cBoard & 0x8100000000000081L); // corners
-		positionScore += BitUtil.countSetBits(cBoard & 0xFF818181818181FFL); // edge
+	/**
+	 * Stability cutoff for null-window searches. The opponent's stable discs
+	 * are theirs at the end of the game, which caps the final score of this
+	 * node (see evaluateEnd). If the cap is at or below alpha the node fails
+	 * low without being searched.
+	 *
+	 * The stable-disc count is only worth computing when the cap can fall
+	 * below the window: the opponent has at least 32 discs (the cap is a draw
+	 * or a loss), or alpha is already in the winning band.
+	 *
+	 * @return an upper bound <= alpha, or NOSCORE if there is no cutoff
+	 */
+	protected int stabilityBound(OthelloBitBoard position, int alpha, int beta, int turn) {
+		if (beta != alpha + 1) {
+			return NOSCORE;
+		}
+
+		long own = (turn == WHITE) ? position.white : position.black;
+		long opp = (turn == WHITE) ? position.black : position.white;
+		boolean winBand = alpha > PROVEN_WIN;
 
-		return pieceScore + positionScore;
+		if (!winBand && BitUtil.countSetBits(opp) < 32) {
+			return NOSCORE;
+		}
+
+		// we keep at most 64 - stable discs
+		int maxDiff = 64 - 2 * BitUtil.countSetBits(StableDiscs.stable(opp, own));
+		int bound;
+		if (maxDiff == 0) {
+			bound = Math.max(valueOfDraw, endScore(-1));
+		} else {
+			bound = endScore(maxDiff);
+		}
+
+		return (bound <= alpha) ? bound : NOSCORE;
+	}
+
+	/**
+	 * estimates the value of the position for use in leaf nodes
+	 *
+	 * @param position : current position
+	 * @param turn: who's turn (WHITE or BLACK)
+	 * @return an estimation of the 'quality' of this positon
+	 */
+	public int evaluateLeaf(OthelloBitBoard position, int turn) {
+		return clampEvaluation(leafEvaluator.evaluate(position, turn));
+	}
+
+	/**
+	 * @param score : an evaluator's estimate
+	 * @return the estimate, kept strictly inside the proven band
+	 */
+	static int clampEvaluation(int score) {
+		return Math.max(-PROVEN_WIN + 1, Math.min(PROVEN_WIN - 1, score));
 	}
 
 	/**
@@ -515,13 +1008,52 @@ public class OthelloAlphaBeta {
 	protected int evaluateEnd(OthelloBitBoard position, int state) {
 		int pieceDiff = position.countPieces(state) - position.countPieces(state ^ 1);
 
-		if (pieceDiff < 0) {
-			return LOWESTSCORE + 1 + position.countPieces(state); // LOSE
-		} else if (pieceDiff == 0) {
+		if (pieceDiff == 0) {
 			return valueOfDraw;
-		} else {
-			return HIGHESTSCORE - 1 - position.countPieces(state ^ 1); //win
 		}
+		return endScore(pieceDiff);
+	}
+
+	/**
+	 * @param pieceDiff : final disc difference of a won or lost game, not 0
+	 * @return its score
+	 */
+	static int endScore(int pieceDiff) {
+		return (pieceDiff > 0 ? PROVEN_WIN : -PROVEN_WIN) + pieceDiff * DISC;
+	}
+
+	/**
+	 * @param score : a search result
+	 * @return the score in discs, with the result of the game if it is proven
+	 */
+	public static String describeScore(int score) {
+		if (score > PROVEN_WIN) {
+			return "win by " + ((score - PROVEN_WIN) / DISC) + " discs";
+		} else if (score < -PROVEN_WIN) {
+			return "loss by " + ((-PROVEN_WIN - score) / DISC) + " discs";
+		}
+		return String.format("%+.2f discs", (double)score / DISC);
+	}
+
+	/**
+	 * counts the legal moves of a position. Only used for profiling, the search
+	 * kernels never need the full count.
+	 *
+	 * @param position
+	 * @param turn : WHITE or BLACK
+	 * @return number of legal moves for turn
+	 */
+	static int countLegalMoves(OthelloBitBoard position, int turn) {
+		int count = 0;
+		for (long likelyMoves = position.generateLikelyMoves(turn);
+				likelyMoves != 0;
+				likelyMoves &= (likelyMoves - 1)) {
+			int movePos = BitUtil.ulog2(BitUtil.lowSetBit(likelyMoves));
+			if (position.moveIsLegal(OthelloBitBoard.xyTox(movePos), OthelloBitBoard.xyToy(movePos), turn)) {
+				++count;
+			}
+		}
+		return count;
 	}
 
 	/**
@@ -623,6 +1155,72 @@ public class OthelloAlphaBeta {
 		leafCount = 0;
 		nodesSearched = 0;
 		nodesRetrieved = 0;
+		if (SearchProfile.ENABLED) {
+			profile.clear();
+		}
+	}
+
+	/**
+	 * start writing a binary trace of the search tree
+	 *
+	 * @param filename : trace file
+	 * @param maxPly : deepest ply to record (exclusive)
+	 * @param sampleRate : record one search pass out of every sampleRate
+	 */
+	public void startTrace(String filename, int maxPly, int sampleRate) throws IOException {
+		tracer = new SearchTracer(filename, maxPly, sampleRate);
+	}
+
+	/**
+	 * flush and close the trace, if one is being written
+	 */
+	public void closeTrace() {
+		if (tracer == null) {
+			return;
+		}
+
+		try {
+			tracer.close();
+		} catch (IOException e) {
+			System.out.println("Error writing trace");
+			e.printStackTrace();
+		}
+		tracer = null;
+	}
+
+	/**
+	 * @return the per-ply profile, or null if profiling is not enabled
+	 */
+	public SearchProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * write the profile to the file named by the ProfileOutput setting.
+	 * Files ending in .json get JSON, anything else gets CSV.
+	 */
+	public void writeProfile() {
+		if (profileOutput == null) {
+			return;
+		}
+
+		if (!SearchProfile.ENABLED) {
+			System.out.println("ProfileOutput ignored: run with -Dothello.profile=true");
+			return;
+		}
+
+		try {
+			FileWriter out = new FileWriter(profileOutput);
+			if (profileOutput.toLowerCase().endsWith(".json")) {
+				profile.writeJSON(out);
+			} else {
+				profile.writeCSV(out);
+			}
+			out.close();
+		} catch (IOException e) {
+			System.out.println("Error writing profile");
+			e.printStackTrace();
+		}
 	}
 
 	public int getMinDepthToStore() {
@@ -633,6 +1231,158 @@ public class OthelloAlphaBeta {
 		this.minDepthToStore = minDepthToStore;
 	}
 
+	public int getMinStabilityDepth() {
+		return minStabilityDepth;
+	}
+
+	public void setMinStabilityDepth(int minStabilityDepth) {
+		this.minStabilityDepth = minStabilityDepth;
+	}
+
+	public boolean getHistoryOrdering() {
+		return moveOrdering.enabled;
+	}
+
+	/**
+	 * @param historyOrdering : order moves in unsorted nodes by killer and
+	 * history tables; if false, moves are tried in bit-scan order
+	 */
+	public void setHistoryOrdering(boolean historyOrdering) {
+		moveOrdering.enabled = historyOrdering;
+	}
+
+	public int getMinShallowOrderingDepth() {
+		return minShallowOrderingDepth;
+	}
+
+	/**
+	 * @param depth : shallowest sorted node that orders its children by
+	 * shallow searches (see orderingScore); nodes above maxSearchDepth
+	 * never do, which leaves only the table windows
+	 */
+	public void setMinShallowOrderingDepth(int depth) {
+		minShallowOrderingDepth = depth;
+	}
+
+	public int getShallowOrderingSearchDepth() {
+		return shallowOrderingSearchDepth;
+	}
+
+	public void setShallowOrderingSearchDepth(int depth) {
+		shallowOrderingSearchDepth = depth;
+	}
+
+	public int getFastestFirstEmpties() {
+		return moveOrdering.fastestFirstEmpties;
+	}
+
+	/**
+	 * @param empties : unsorted nodes with at most this many empty squares
+	 * try the moves that leave the opponent the fewest replies first
+	 */
+	public void setFastestFirstEmpties(int empties) {
+		moveOrdering.fastestFirstEmpties = empties;
+	}
+
+	public int getParityEmpties() {
+		return moveOrdering.parityEmpties;
+	}
+
+	/**
+	 * @param empties : unsorted nodes with at most this many empty squares
+	 * try moves into quadrants with an odd number of empties first
+	 */
+	public void setParityEmpties(int empties) {
+		moveOrdering.parityEmpties = empties;
+	}
+
+	public ProbCut getProbCut() {
+		return probCut;
+	}
+
+	/**
+	 * @param probCut : Multi-ProbCut models for a selective search, or null
+	 * for a full-width search
+	 */
+	public void setProbCut(ProbCut probCut) {
+		this.probCut = probCut;
+	}
+
+	public boolean getLateMoveReductions() {
+		return lateMoveReductions;
+	}
+
+	/**
+	 * @param lateMoveReductions : whether unsorted nodes search their late
+	 * moves at reduced depth with a null window, and again in full only if
+	 * they beat alpha. This is selective (a move that only looks bad at the
+	 * reduced depth is never searched in full), so it is off by default.
+	 */
+	public void setLateMoveReductions(boolean lateMoveReductions) {
+		this.lateMoveReductions = lateMoveReductions;
+	}
+
+	public int getMinReductionDepth() {
+		return minReductionDepth;
+	}
+
+	/**
+	 * @param minReductionDepth : shallowest unsorted node that reduces its
+	 * late moves
+	 */
+	public void setMinReductionDepth(int minReductionDepth) {
+		this.minReductionDepth = minReductionDepth;
+	}
+
+	public int getFullDepthMoves() {
+		return fullDepthMoves;
+	}
+
+	/**
+	 * @param fullDepthMoves : moves, in search order, searched at full depth
+	 * before the reductions start
+	 */
+	public void setFullDepthMoves(int fullDepthMoves) {
+		this.fullDepthMoves = fullDepthMoves;
+	}
+
+	public int getDepthReduction() {
+		return depthReduction;
+	}
+
+	/**
+	 * @param depthReduction : plies taken off the search of a late move
+	 */
+	public void setDepthReduction(int depthReduction) {
+		this.depthReduction = depthReduction;
+	}
+
+	public int[] getAspirationWidths() {
+		return aspirationWidths;
+	}
+
+	/**
+	 * @param widths : half-widths in score units, at least 1 and growing, of the windows
+	 * iterativeAlphaBeta() tries on a side before searching to the bound;
+	 * none searches every depth with the full window
+	 */
+	public void setAspirationWidths(int[] widths) {
+		aspirationWidths = widths;
+	}
+
+	public int getMinEtcDepth() {
+		return minEtcDepth;
+	}
+
+	/**
+	 * @param minEtcDepth : shallowest depth at which alphaBetaNoSort probes
+	 * its children's table entries before searching them (sorted nodes
+	 * always do); a depth above maxSearchDepth turns this off
+	 */
+	public void setMinEtcDepth(int minEtcDepth) {
+		this.minEtcDepth = minEtcDepth;
+	}
+
 	public int getValueOfDraw() {
 		return valueOfDraw;
 	}
@@ -647,9 +1397,18 @@ public class OthelloAlphaBeta {
 
 	public void setMaxSearchDepth(int maxSearchDepth) {
 		this.maxSearchDepth = maxSearchDepth;
+		moveOrdering.ensurePlies(maxSearchDepth + 2); // passes at the last ply reach maxSearchDepth + 1
 		scoreOfConfiguration = 0; //reset, because this score will no longer be valid.
 	}
 
+	public LeafEvaluator getLeafEvaluator() {
+		return leafEvaluator;
+	}
+
+	public void setLeafEvaluator(LeafEvaluator leafEvaluator) {
+		this.leafEvaluator = leafEvaluator;
+	}
+
 	public int getLevelsToSort() {
 		return levelsToSort;
 	}
@@ -666,7 +1425,22 @@ public class OthelloAlphaBeta {
 
 	public void initTranspositionTable(int maxTableEntries) {
 		this.maxTableEntries = maxTableEntries;
-		transpositionTable = new HashMap<BoardAndDepth, Window>(maxTableEntries / 2, 0.5f);
+		if (compactTable) {
+			transpositionTable = new CompactTranspositionTable(maxTableEntries);
+		} else {
+			transpositionTable = new HashMap<BoardAndDepth, Window>(maxTableEntries / 2, 0.5f);
+		}
+	}
+
+	/**
+	 * choose the table implementation, and rebuild the (empty) table
+	 *
+	 * @param compactTable : true for 16-byte entries verified by a 64-bit key,
+	 * false for a HashMap of boards
+	 */
+	public void setCompactTable(boolean compactTable) {
+		this.compactTable = compactTable;
+		initTranspositionTable(maxTableEntries);
 	}
 
 	/**
@@ -702,6 +1476,35 @@ public class OthelloAlphaBeta {
 		return null;
 	}
 
+	/**
+	 * @param discs : a score setting (a bound or a guess), in discs
+	 * @return the score in score units, clamped to [LOWESTSCORE, HIGHESTSCORE]
+	 */
+	static int parseScore(String discs) {
+		long score = Math.max(LOWESTSCORE, Math.min(HIGHESTSCORE, Long.parseLong(discs.trim())));
+		return (int)Math.max(LOWESTSCORE, Math.min(HIGHESTSCORE, score * DISC));
+	}
+
+	/**
+	 * @param list : comma-separated aspiration half-widths in discs,
+	 * growing; "0" for none
+	 * @return the widths, in score units
+	 */
+	static int[] parseWidths(String list) {
+		if (list.trim().equals("0")) {
+			return new int[0];
+		}
+		String[] items = list.split(",");
+		int[] widths = new int[items.length];
+		for (int i = 0; i < items.length; ++i) {
+			widths[i] = Integer.parseInt(items[i].trim()) * DISC;
+			if (widths[i] < 1 || (i > 0 && widths[i] <= widths[i - 1])) {
+				throw new NumberFormatException("bad aspiration widths " + list);
+			}
+		}
+		return widths;
+	}
+
 	/**
 	 * set up the object based on settings in the file
 	 *
@@ -777,9 +1580,13 @@ public class OthelloAlphaBeta {
 			if (t != null) {
 				setMaxSearchDepth(Integer.parseInt(t));
 			}
-			t = findSetting(args, "MaxTableSize");
+			t = findSetting(args, "CompactTable");
 			if (t != null) {
-				initTranspositionTable(Integer.parseInt(t));
+				compactTable = Boolean.parseBoolean(t);
+			}
+			t = findSetting(args, "MaxTableSize");
+			if (t != null || compactTable) {
+				initTranspositionTable((t != null) ? Integer.parseInt(t) : maxTableEntries);
 			}
 			t = findSetting(args, "MinDepthToStore");
 			if (t != null) {
@@ -789,10 +1596,81 @@ public class OthelloAlphaBeta {
 			if (t != null) {
 				setLevelsToSort(Integer.parseInt(t));
 			}
+			t = findSetting(args, "MinStabilityDepth");
+			if (t != null) {
+				setMinStabilityDepth(Integer.parseInt(t));
+			}
+			t = findSetting(args, "MinEtcDepth");
+			if (t != null) {
+				setMinEtcDepth(Integer.parseInt(t));
+			}
+			t = findSetting(args, "MinShallowOrderingDepth");
+			if (t != null) {
+				setMinShallowOrderingDepth(Integer.parseInt(t));
+			}
+			t = findSetting(args, "ShallowOrderingSearchDepth");
+			if (t != null) {
+				setShallowOrderingSearchDepth(Integer.parseInt(t));
+			}
+			t = findSetting(args, "FastestFirstEmpties");
+			if (t != null) {
+				setFastestFirstEmpties(Integer.parseInt(t));
+			}
+			t = findSetting(args, "ParityEmpties");
+			if (t != null) {
+				setParityEmpties(Integer.parseInt(t));
+			}
+			t = findSetting(args, "HistoryOrdering");
+			if (t != null) {
+				setHistoryOrdering(Boolean.parseBoolean(t));
+			}
+			t = findSetting(args, "AspirationWindows");
+			if (t != null) {
+				setAspirationWidths(parseWidths(t));
+			}
+			t = findSetting(args, "LateMoveReductions");
+			if (t != null) {
+				setLateMoveReductions(Boolean.parseBoolean(t));
+			}
+			t = findSetting(args, "MinReductionDepth");
+			if (t != null) {
+				setMinReductionDepth(Integer.parseInt(t));
+			}
+			t = findSetting(args, "FullDepthMoves");
+			if (t != null) {
+				setFullDepthMoves(Integer.parseInt(t));
+			}
+			t = findSetting(args, "DepthReduction");
+			if (t != null) {
+				setDepthReduction(Integer.parseInt(t));
+			}
+			readEvaluatorSettings(args);
+			t = findSetting(args, "ProbCut");
+			if (t != null) {
+				ProbCut models = new ProbCut();
+				try {
+					models.load(t);
+					String confidence = findSetting(args, "ProbCutConfidence");
+					if (confidence != null) {
+						models.setConfidence(Double.parseDouble(confidence));
+					}
+					setProbCut(models);
+				} catch (IOException e) {
+					System.out.println("WARNING: could not load ProbCut models, searching full width");
+				}
+			}
 			t = findSetting(args, "DebugOutput");
 			if (t != null) {
 				displayToConsole = Boolean.parseBoolean(t);
 			}
+			profileOutput = findSetting(args, "ProfileOutput");
+			t = findSetting(args, "TraceFile");
+			if (t != null) {
+				String depth = findSetting(args, "TraceDepth");
+				String sample = findSetting(args, "TraceSample");
+				startTrace(t, depth == null ? 4 : Integer.parseInt(depth),
+						sample == null ? 1 : Integer.parseInt(sample));
+			}
 
 			in.close();
 		} catch (IndexOutOfBoundsException e) {
@@ -817,6 +1695,61 @@ public class OthelloAlphaBeta {
 		return args;
 	}
 
+	/**
+	 * set up the leaf evaluator from the Evaluator, EvaluatorWeights,
+	 * Mobility and EvaluationCacheKB settings
+	 *
+	 * @param args : list of settings
+	 */
+	public void readEvaluatorSettings(List<String> args) {
+		String t = findSetting(args, "Evaluator");
+		if (t != null && t.compareToIgnoreCase("pattern") == 0) {
+			PatternEvaluator evaluator = new IncrementalPatternEvaluator();
+			String weights = findSetting(args, "EvaluatorWeights");
+			try {
+				evaluator.load(weights == null ? "PatternWeights.dat" : weights);
+				setLeafEvaluator(evaluator);
+			} catch (IOException e) {
+				System.out.println("WARNING: could not load pattern weights, using simple evaluator");
+			}
+		} else if (t != null && t.compareToIgnoreCase("simple") == 0) {
+			String weights = findSetting(args, "EvaluatorWeights");
+			if (weights != null) {
+				SimpleEvaluator evaluator = new SimpleEvaluator();
+				try {
+					evaluator.load(weights);
+					setLeafEvaluator(evaluator);
+				} catch (IOException e) {
+					System.out.println("WARNING: could not load simple evaluator weights, using defaults");
+				}
+			}
+		} else if (t != null && t.compareToIgnoreCase("network") == 0) {
+			NetworkEvaluator evaluator = new NetworkEvaluator();
+			String weights = findSetting(args, "EvaluatorWeights");
+			try {
+				evaluator.load(weights == null ? "NetworkWeights.dat" : weights);
+				setLeafEvaluator(evaluator);
+			} catch (IOException e) {
+				System.out.println("WARNING: could not load network weights, using simple evaluator");
+			}
+		}
+		t = findSetting(args, "Mobility");
+		if (t != null && Boolean.parseBoolean(t)) {
+			MobilityEvaluator evaluator = new MobilityEvaluator(getLeafEvaluator());
+			String mobility = findSetting(args, "MobilityWeight");
+			String potential = findSetting(args, "PotentialMobilityWeight");
+			String frontier = findSetting(args, "FrontierWeight");
+			evaluator.setWeights(mobility == null ? 1.0 : Double.parseDouble(mobility),
+					potential == null ? 0.5 : Double.parseDouble(potential),
+					frontier == null ? 0.5 : Double.parseDouble(frontier));
+			setLeafEvaluator(evaluator);
+		}
+		t = findSetting(args, "EvaluationCacheKB");
+		if (t != null && Integer.parseInt(t) > 0) {
+			setLeafEvaluator(new CachingEvaluator(getLeafEvaluator(), Integer.parseInt(t)));
+		}
+	}
+
 	/**
 	 * @param args
 	 *
@@ -849,32 +1782,48 @@ public class OthelloAlphaBeta {
 		}
 		int alpha = LOWESTSCORE;
 		int beta = HIGHESTSCORE;
+		boolean iterative = false; // iterative deepening with aspiration windows
 
 		//read in optional file arguments
 		String t = findSetting(fileArgs, "alpha");
 		try {
 			if (t != null) {
-				alpha = Integer.parseInt(t);
+				alpha = parseScore(t); // given in discs
 			}
 			t = findSetting(fileArgs, "beta");
 			if (t != null) {
-				beta = Integer.parseInt(t);
+				beta = parseScore(t); // given in discs
 			}
 			t = findSetting(fileArgs, "ShowMove");
 			if (t != null) {
 				reSearch = Boolean.parseBoolean(t);
 			}
+			t = findSetting(fileArgs, "IterativeAlphaBeta");
+			if (t != null) {
+				iterative = Boolean.parseBoolean(t);
+			}
 		} catch (NumberFormatException e) {
 			System.out.println("File Argument error");
 		}
 
 		//do primary search
-		int score = search.alphaBetaSearch(alpha, beta);
+		int score;
+		if (iterative) {
+			score = search.iterativeAlphaBeta(alpha, beta);
+		} else {
+			if (SearchProfile.ENABLED) {
+				search.profile.beginSegment("alphabeta", search.maxSearchDepth, alpha, beta);
+			}
+			score = search.alphaBetaSearch(alpha, beta);
+			if (SearchProfile.ENABLED) {
+				search.profile.endSegment(score);
+			}
+		}
 
 		long searchTime = (System.currentTimeMillis() - begin);
 		double leafNodesPerSec = ((double)(search.getLeafCount() * 1000) / (double)searchTime);
 
-		System.out.println("score: " + score);
+		System.out.println("score: " + score + " (" + describeScore(score) + ")");
 		System.out.println("leaf nodes: " + search.getLeafCount());
 		System.out.println("non-leaf nodes: " + search.getNodesSearched());
 		System.out.println("Leaf nodes/sec:" + (long)leafNodesPerSec);
@@ -883,6 +1832,9 @@ public class OthelloAlphaBeta {
 
 		System.out.println("Search time: " + searchTime);
 
+		search.writeProfile();
+		search.closeTrace();
+
 		//do re-search to locate the best move. Not part of main search.
 		if (reSearch && alpha < score && score < beta) {
 			long r2 = System.currentTimeMillis();
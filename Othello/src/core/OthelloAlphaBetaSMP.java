@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 import edu.rit.pj.Comm;
 import edu.rit.pj.ParallelRegion;
@@ -28,6 +29,13 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 	int leafJobsExecuted;
 	int jobsSkipped;
 
+	//per-worker counters, folded into the totals above after each parallel run
+	SchedulerMetrics metrics = new SchedulerMetrics();
+	SchedulerMetrics.Worker driverStats = new SchedulerMetrics.Worker(); // jobs run with threadIndex -1
+	//job bookkeeping can run on any thread, so these are shared
+	LongAdder jobNodesSearched = new LongAdder();
+	LongAdder jobNodesRetrieved = new LongAdder();
+
 	int sharedTableLevel = 9;
 
 	JobRequest rootJob = null;
@@ -44,7 +52,6 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		this.localTableSize = localTableSize;
 		jobQueue = new ArrayBlockingQueue<JobRequest>(100, true);
 		rand = new Random();
-		transpositionTable = Collections.synchronizedMap(transpositionTable);
 	}
 
 	/**
@@ -55,7 +62,6 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		localTableSize = 250000;
 		jobQueue = new ArrayBlockingQueue<JobRequest>(100, true);
 		rand = new Random();
-		transpositionTable = Collections.synchronizedMap(transpositionTable);
 	}
 
 	/**
@@ -87,10 +93,16 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		Map<BoardAndDepth, Window> local;
 		int split; // level in the tree in which we switch to 'local' table
 
-		SplitTranspositionTable(Map<BoardAndDepth, Window> shared, int split) {
+		/**
+		 * @param shared : table of the nodes above split, shared by all threads
+		 * @param local : table of this thread's nodes at or below split
+		 * @param split : level in the tree in which we switch to 'local' table
+		 */
+		SplitTranspositionTable(Map<BoardAndDepth, Window> shared, Map<BoardAndDepth, Window> local,
+				int split) {
 			this.shared = shared;
+			this.local = local;
 			this.split = split;
-			local = new HashMap<BoardAndDepth, Window>(100000);
 		}
 
 		public void clear() {
@@ -186,13 +198,29 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 
 		//called to also hangle certain other business when executed
 		public void executeJob(int threadIndex) {
+			SearchEvents.JobEvent event = new SearchEvents.JobEvent();
+			event.begin();
+
 			started = true;
 			if (!cancelled && !complete) {
 				onExecute(threadIndex);
 				complete = (childJobs == null) || childJobs.isEmpty();
 			}
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.action = "execute";
+				event.jobType = getClass().getSimpleName();
+				event.depth = jobDepth();
+				event.threadIndex = threadIndex;
+				event.completed = complete;
+				event.commit();
+			}
 		}
 
+		//remaining depth of the position this job searches, for event reporting
+		public int jobDepth() { return -1; }
+
 		//the child may request a smaller search window
 		public void updateChildWindow(Window window) {}
 
@@ -202,6 +230,9 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		protected void cancelAllChildJobs() {
 			if (childJobs != null) {
 				for (JobRequest j : childJobs) {
+					if (!j.cancelled) {
+						jobEvent("cancel", j, -1);
+					}
 					j.cancelled = true;
 					if (!(j.cancelled || j.complete)) {
 						j.cancelAllChildJobs();
@@ -236,6 +267,7 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 			item = new BoardAndDepth(position, depth, turn);
 			searchWindow = new Window(window);
 			parentJob = null;
+			bestScore = NOSCORE;
 		}
 
 		/**
@@ -292,18 +324,21 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 				parentJob.updateChildWindow(searchWindow);
 			}
 
-			++nodesSearched;
+			jobNodesSearched.increment();
 
 			if (storedWindow != null)
 			{
-				++nodesRetrieved;
+				jobNodesRetrieved.increment();
 
 				//check if we already know the result to be outside of what we care about
+				//(report once only: each report counts as one finished child of the parent)
 				if (storedWindow.alpha >= searchWindow.beta) {
 					reportJobComplete(storedWindow.alpha);
+					return false;
 				}
 				if (storedWindow.beta <= searchWindow.alpha) {
 					reportJobComplete(storedWindow.beta);
+					return false;
 				}
 
 				//align windows
@@ -400,6 +435,9 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 			childJobs = Collections.synchronizedList(new Vector<JobRequest>(16));
 
 			Vector<BoardAndWindow> moveList = new Vector<BoardAndWindow>();
+			// only positions early in the game have symmetric children
+			ChildBatch symmetricChildren = (EvaluationStages.discs(item) < CANONICAL_DISCS) ?
+					new ChildBatch() : null;
 
 			for (long likelyMoves = item.generateLikelyMoves(turn);
 					likelyMoves != 0;
@@ -413,6 +451,10 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 				}
 
 				OthelloBitBoard newPosition = item.copyAndMakeMove(moveX, moveY, turn);
+				if (symmetricChildren != null &&
+						symmetricChildren.isSymmetricDuplicate(newPosition.white, newPosition.black)) {
+					continue; // same score as a sibling already in the list
+				}
 
 				//search the table for the most well-searched window relating to this new position
 				Window tWindow = null;
@@ -432,32 +474,28 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 			if (moveList.isEmpty()) { // if NO move was found...
 				if (item.canMove(turn ^ 1)) {
 					// player loses turn
-					enqueueChildJob(item, threadIndex);
+					childJobs.add(new AlphaBetaJobRequest(this, item));
 				} else {
 					//end of game
 					reportJobComplete(evaluateEnd(item, turn));
+					return;
 				}
 			} else {
 				Collections.sort(moveList); // sort, placing most likely to cutoff first
 
 				for (BoardAndWindow p : moveList) {
-					//request all child jobs in sorted order
-					enqueueChildJob(p.board, threadIndex);
+					childJobs.add(new AlphaBetaJobRequest(this, p.board));
 				}
 			}
-		}
 
-		/**
-		 * private function for enqueing a child job on a certain thread
-		 *
-		 * @param newPosition
-		 * @param threadIndex
-		 */
-		private void enqueueChildJob(OthelloBitBoard newPosition, int threadIndex) {
-			JobRequest s = new AlphaBetaJobRequest(this, newPosition);
-			if (s.checkJobNecessity()) {
-				childJobs.add(s);
-				enqueueJob(s, threadIndex);
+			// Every child is listed before any is checked: a child whose score
+			// is already in the table completes at once, and this job must not
+			// take the moves found so far for all of them.
+			for (JobRequest s : new ArrayList<JobRequest>(childJobs)) {
+				//request all child jobs in sorted order
+				if (s.checkJobNecessity()) {
+					enqueueJob(s, threadIndex);
+				}
 			}
 		}
 
@@ -474,22 +512,25 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 					OthelloAlphaBeta localSearch;
 					if (threadIndex == -1){
 						localSearch = new OthelloAlphaBeta(localTableSize);
+						configureLocalSearch(localSearch);
 					} else {
 						localSearch = localSearches.get(threadIndex);
 					}
 
 					localSearch.setRootNode(item, item.getTurn());
+					long leavesBefore = localSearch.getLeafCount();
+					long nodesBefore = localSearch.getNodesSearched();
 
 					//bulk of slowness that is meant to run in parallel
 					int score = localSearch.alphaBetaSearch(searchWindow.alpha, searchWindow.beta);
 					//System.out.println("Window [" + searchWindow.alpha + ", " + searchWindow.beta + "] = " + score);
 					//System.out.println("leaves:" + getLeafCount());
 
-					//stats tracking (maybe switch off for parallel performance)
-					leafCount += localSearch.getLeafCount();
-					nodesSearched += localSearch.getNodesSearched();
-
-					++leafJobsExecuted;
+					//stats tracking, thread-confined until merged
+					SchedulerMetrics.Worker stats = workerStats(threadIndex);
+					stats.leafCount += localSearch.getLeafCount() - leavesBefore;
+					stats.nodesSearched += localSearch.getNodesSearched() - nodesBefore;
+					++stats.leafJobsExecuted;
 
 					reportJobComplete(score);
 				} else {
@@ -497,7 +538,7 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 					spawnChildJobs(threadIndex);
 				}
 			} else {
-				++jobsSkipped;
+				++workerStats(threadIndex).jobsSkipped;
 			}
 		}
 
@@ -515,6 +556,29 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		public int retreiveScore() {
 			return bestScore;
 		}
+
+		public int jobDepth() {
+			return item.getDepth();
+		}
+	}
+
+	/**
+	 * commit an instant JFR event for a job
+	 *
+	 * @param action : "spawn", "cancel" or "steal"
+	 * @param job : the job concerned
+	 * @param threadIndex : thread doing the action, -1 if unknown
+	 */
+	void jobEvent(String action, JobRequest job, int threadIndex) {
+		SearchEvents.JobEvent e = new SearchEvents.JobEvent();
+		if (e.shouldCommit()) {
+			e.action = action;
+			e.jobType = job.getClass().getSimpleName();
+			e.depth = job.jobDepth();
+			e.threadIndex = threadIndex;
+			e.completed = job.complete;
+			e.commit();
+		}
 	}
 
 	public int getTotalJobsExecuted() {
@@ -529,6 +593,64 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		return jobsSkipped;
 	}
 
+	public SchedulerMetrics getSchedulerMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @param threadIndex : worker index, or -1 for the driving thread
+	 * @return the counters owned by that thread
+	 */
+	SchedulerMetrics.Worker workerStats(int threadIndex) {
+		return threadIndex == -1 ? driverStats : metrics.get(threadIndex);
+	}
+
+	/**
+	 * @return leaf count including workers that have not been merged yet.
+	 *  Approximate while a parallel search is running.
+	 */
+	long liveLeafCount() {
+		long total = leafCount + driverStats.leafCount;
+		for (SchedulerMetrics.Worker w : metrics.workers) {
+			total += w.leafCount;
+		}
+		return total;
+	}
+
+	/**
+	 * @return non-leaf node count including workers that have not been merged yet.
+	 *  Approximate while a parallel search is running.
+	 */
+	long liveNodesSearched() {
+		long total = nodesSearched + driverStats.nodesSearched + jobNodesSearched.sum();
+		for (SchedulerMetrics.Worker w : metrics.workers) {
+			total += w.nodesSearched;
+		}
+		return total;
+	}
+
+	/**
+	 * fold worker and driver counters into the engine totals.
+	 * Only called once the parallel region has joined.
+	 */
+	private void mergeWorkerStats() {
+		List<SchedulerMetrics.Worker> all = new ArrayList<SchedulerMetrics.Worker>();
+		all.add(driverStats);
+		all.addAll(Arrays.asList(metrics.workers));
+
+		for (SchedulerMetrics.Worker w : all) {
+			totalJobsExecuted += w.jobsExecuted;
+			leafJobsExecuted += w.leafJobsExecuted;
+			jobsSkipped += w.jobsSkipped;
+			leafCount += w.leafCount;
+			nodesSearched += w.nodesSearched;
+		}
+
+		nodesSearched += jobNodesSearched.sumThenReset();
+		nodesRetrieved += (int)jobNodesRetrieved.sumThenReset();
+		driverStats.clear();
+	}
+
 	/**
 	 * @param sharedDepth :he number of levels in the tree in which jobs should
 	 *  be placed into the job queue and executed in parallel
@@ -545,6 +667,14 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		sharedTableLevel = level;
 	}
 
+	/**
+	 * the shared table is used by every thread, so it is always synchronized
+	 */
+	public void initTranspositionTable(int maxTableEntries) {
+		super.initTranspositionTable(maxTableEntries);
+		transpositionTable = Collections.synchronizedMap(transpositionTable);
+	}
+
 	/**
 	 * reset all counters
 	 */
@@ -552,6 +682,10 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		super.resetCounters();
 		leafJobsExecuted = 0;
 		totalJobsExecuted = 0;
+		jobsSkipped = 0;
+		driverStats.clear();
+		jobNodesSearched.reset();
+		jobNodesRetrieved.reset();
 	}
 
 	/**
@@ -566,6 +700,8 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 			return;
 		}
 
+		jobEvent("spawn", job, threadIndex);
+
 		if (threadIndex == -1) {
 			jobQueue.add(job);
 		} else {
@@ -584,19 +720,44 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		}
 
 		for (int i = localSearches.size(); i < m; ++i) {
-			OthelloAlphaBeta localSearch = new OthelloAlphaBeta(
-					new SplitTranspositionTable(transpositionTable, 
-							maxSearchDepth - sharedTableLevel));
-
-			localSearch.setMaxSearchDepth(maxSearchDepth - sharedSearchDepth);
-			localSearch.setLevelsToSort(levelsToSort - sharedSearchDepth);
-			localSearch.setValueOfDraw(valueOfDraw);
-			localSearch.setMinDepthToStore(3);
+			OthelloAlphaBeta localSearch = new OthelloAlphaBeta(localTableSize);
+			configureLocalSearch(localSearch);
+			// the table just built for the local search becomes the local part
+			localSearch.transpositionTable = new SplitTranspositionTable(transpositionTable,
+					localSearch.transpositionTable, maxSearchDepth - sharedTableLevel);
 
 			localSearches.add(localSearch);
 		}
 	}
 
+	/**
+	 * give a sequential search for the lower part of the tree the settings
+	 * of this search. This rebuilds its table, so a shared table is set
+	 * afterwards.
+	 *
+	 * @param localSearch : search rooted sharedSearchDepth plies down
+	 */
+	private void configureLocalSearch(OthelloAlphaBeta localSearch) {
+		localSearch.setCompactTable(compactTable);
+		localSearch.setMaxSearchDepth(maxSearchDepth - sharedSearchDepth);
+		localSearch.setLevelsToSort(levelsToSort - sharedSearchDepth);
+		localSearch.setValueOfDraw(valueOfDraw);
+		localSearch.setMinDepthToStore(3);
+		localSearch.setMinStabilityDepth(minStabilityDepth);
+		localSearch.setMinEtcDepth(minEtcDepth);
+		localSearch.setHistoryOrdering(getHistoryOrdering());
+		localSearch.setFastestFirstEmpties(getFastestFirstEmpties());
+		localSearch.setParityEmpties(getParityEmpties());
+		localSearch.setProbCut(probCut);
+		localSearch.setLateMoveReductions(lateMoveReductions);
+		localSearch.setMinReductionDepth(minReductionDepth);
+		localSearch.setFullDepthMoves(fullDepthMoves);
+		localSearch.setDepthReduction(depthReduction);
+		localSearch.setMinShallowOrderingDepth(minShallowOrderingDepth);
+		localSearch.setShallowOrderingSearchDepth(shallowOrderingSearchDepth);
+		localSearch.setLeafEvaluator(leafEvaluator.copy());
+	}
+
 	/**
 	 * prepare m new job queues for m threads
 	 *
@@ -630,7 +791,8 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 	 * @param index : current thread index
 	 * @return a new job to execute
 	 */
-	private JobRequest pullJob(List<Queue<JobRequest>> localList, int index) {
+	private JobRequest pullJob(List<Queue<JobRequest>> localList, int index,
+			SchedulerMetrics.Worker stats) {
 		JobRequest	j = localList.get(index).poll();
 
 		if (j != null) {
@@ -638,6 +800,9 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		}
 
 		//else steal a job
+		long stealStart = System.nanoTime();
+		++stats.stealAttempts;
+
 		int end = Math.abs(rand.nextInt()) % localList.size();
 		int start = (end + 1) % localList.size();
 
@@ -646,10 +811,14 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 
 			if (j != null) {
 				//System.out.println("Stole job from" + i);
+				++stats.steals;
+				stats.stealNanos += System.nanoTime() - stealStart;
+				jobEvent("steal", j, index);
 				return j;
 			}
 		}
 
+		stats.stealNanos += System.nanoTime() - stealStart;
 		return null;
 	}
 
@@ -665,7 +834,7 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 			if (j != null) {
 				j.executeJob(threadIndex);
 				if (j.complete) {
-					++totalJobsExecuted;
+					++workerStats(threadIndex).jobsExecuted;
 				}
 			}
 		}
@@ -682,7 +851,17 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		try {
 			prepareLocalSearches(threads);
 			prepareLocalJobQueues(threads);
+			metrics.prepare(threads);
+			metrics.register(getClass().getSimpleName());
+
+			if (SearchProfile.ENABLED) {
+				for (OthelloAlphaBeta localSearch : localSearches) {
+					localSearch.profile.clear();
+				}
+			}
+
 			jumpStart(jumpstart);
+			metrics.searching = true;
 
 			new ParallelTeam(threads).execute(new ParallelRegion() {
 				public void run() throws Exception {
@@ -693,16 +872,36 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 					List<Queue<JobRequest>> localList = new ArrayList<Queue<JobRequest>>();
 					localList.addAll(localJobs);
 
+					int index = getThreadIndex();
+					SchedulerMetrics.Worker stats = metrics.get(index);
+					int iterations = 0;
+					long allocatedStart = SchedulerMetrics.currentThreadAllocatedBytes();
+
 					while (!(rootJob.complete || rootJob.cancelled)) {
-						JobRequest j = pullJob(localList, getThreadIndex());
+						long loopStart = System.nanoTime();
+						long stealBefore = stats.stealNanos;
+
+						if ((++iterations & 63) == 0) {
+							stats.sampleQueueDepth(localList.get(index).size());
+						}
+
+						JobRequest j = pullJob(localList, index, stats);
 
 						if (j != null) {
-							j.executeJob(getThreadIndex());
+							long execStart = System.nanoTime();
+							j.executeJob(index);
+							stats.busyNanos += System.nanoTime() - execStart;
 							if (j.complete) {
-								++totalJobsExecuted;
+								++stats.jobsExecuted;
 							}
+						} else {
+							stats.spinNanos += System.nanoTime() - loopStart
+								- (stats.stealNanos - stealBefore);
 						}
 					}
+
+					stats.allocatedBytes = (allocatedStart < 0) ? -1 :
+						SchedulerMetrics.currentThreadAllocatedBytes() - allocatedStart;
 					if (displayToConsole)
 					{
 						System.out.println( getThreadIndex() + " says its done");
@@ -713,7 +912,55 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 			System.exit(1);
 		}
 
+		metrics.searching = false;
+		metrics.unregister();
+		mergeWorkerStats();
+
 		scoreOfConfiguration = rootJob.retreiveScore();
+		SearchEvents.commitTableFill(this);
+
+		if (SearchProfile.ENABLED) {
+			//worker searches are rooted sharedSearchDepth plies below the root
+			for (OthelloAlphaBeta localSearch : localSearches) {
+				profile.merge(localSearch.profile, sharedSearchDepth);
+			}
+		}
+	}
+
+	/**
+	 * Begin a profile segment for this search and for each worker search, so
+	 * the workers' counters are merged into the pass they were counted in.
+	 * Work still running when a pass ends may be counted in the next one.
+	 */
+	protected void beginProfileSegment(String label, int depth, int alpha, int beta) {
+		profile.beginSegment(label, depth, alpha, beta);
+		for (OthelloAlphaBeta localSearch : localSearches) {
+			localSearch.profile.beginSegment(label, depth, alpha, beta);
+		}
+	}
+
+	/**
+	 * one root search of iterativeAlphaBeta(), run on the job queue. The
+	 * local searches are rooted sharedSearchDepth plies down, so they and the
+	 * split of their tables follow the depth of each iteration; iterations
+	 * no deeper than that are searched sequentially.
+	 */
+	protected int windowSearch(int alpha, int beta) {
+		if (maxSearchDepth <= sharedSearchDepth) {
+			return super.windowSearch(alpha, beta);
+		}
+
+		if (localSearches != null) {
+			for (OthelloAlphaBeta localSearch : localSearches) {
+				localSearch.setMaxSearchDepth(maxSearchDepth - sharedSearchDepth);
+				((SplitTranspositionTable)localSearch.transpositionTable).split =
+						maxSearchDepth - sharedTableLevel;
+			}
+		}
+		jobQueue.clear(); // nothing of an earlier search is left to run
+		enqueueAlphaBetaSMP(alpha, beta);
+		parallelExecution(ParallelTeam.getDefaultThreadCount(), 1);
+		return getSearchScore();
 	}
 
 	/**
@@ -724,7 +971,7 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 
 		for (int i = 0; i < n && !jobQueue.isEmpty(); ++i) {
 			jobQueue.poll().executeJob(-1);
-			++totalJobsExecuted;
+			++driverStats.jobsExecuted;
 		}
 	}
 
@@ -757,17 +1004,18 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		}
 		int alpha = LOWESTSCORE;
 		int beta = HIGHESTSCORE;
+		boolean iterative = false; // iterative deepening with aspiration windows
 		boolean reSearch = false;
 
 		//read in optional file arguments
 		String t = findSetting(fileArgs, "alpha");
 		try {
 			if (t != null) {
-				alpha = Integer.parseInt(t);
+				alpha = parseScore(t); // given in discs
 			}
 			t = findSetting(fileArgs, "beta");
 			if (t != null) {
-				beta = Integer.parseInt(t);
+				beta = parseScore(t); // given in discs
 			}
 			t = findSetting(fileArgs, "MaxTableSize");
 			if (t != null) {
@@ -781,20 +1029,33 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 			if (t != null) {
 				reSearch = Boolean.parseBoolean(t);
 			}
+			t = findSetting(fileArgs, "IterativeAlphaBeta");
+			if (t != null) {
+				iterative = Boolean.parseBoolean(t);
+			}
 		} catch (NumberFormatException e) {
 			System.out.println("File Argument error");
 		}
 
 		//do primary search
-		AlphaBetaJobRequest job = search.enqueueAlphaBetaSMP(alpha, beta);
-		search.parallelExecution(ParallelTeam.getDefaultThreadCount(), 1);
+		if (iterative) {
+			search.iterativeAlphaBeta(alpha, beta);
+		} else {
+			if (SearchProfile.ENABLED) {
+				search.profile.beginSegment("alphabeta-smp", search.maxSearchDepth, alpha, beta);
+			}
+			search.windowSearch(alpha, beta);
+			if (SearchProfile.ENABLED) {
+				search.profile.endSegment(search.getSearchScore());
+			}
+		}
 
 		long searchTime = (System.currentTimeMillis() - begin);
 		double leafNodesPerSec = ((double)(search.getLeafCount() * 1000) / (double)searchTime);
 
 		int score = search.getSearchScore();
 
-		System.out.println("score: " + score);
+		System.out.println("score: " + score + " (" + describeScore(score) + ")");
 		System.out.println("leaf nodes: " + search.getLeafCount());
 		System.out.println("non-leaf nodes: " + search.getNodesSearched());
 		System.out.println("Leaf nodes/sec:" + (long)leafNodesPerSec);
@@ -804,9 +1065,17 @@ public class OthelloAlphaBetaSMP extends OthelloAlphaBeta {
 		System.out.println("totalJobsExecuted: " + search.getTotalJobsExecuted());
 		System.out.println("leafJobsExecuted: " + search.getLeafJobsExecuted());
 		System.out.println("jobsSkipped: " + search.getJobsSkipped());
+		System.out.println("steals: " + search.metrics.getSteals() + "/" + search.metrics.getStealAttempts());
 
 		System.out.println("Search time: " + searchTime);
 
+		if (search.displayToConsole) {
+			search.metrics.print();
+		}
+
+		search.writeProfile();
+		search.closeTrace();
+
 		//do re-search to locate the best move. Not part of main search.
 		if (reSearch && alpha < score && score < beta) {
 			long r2 = System.currentTimeMillis();
@@ -423,9 +423,11 @@ public class OthelloBitBoard implements OthelloBoard {
 		switch (state) {
 		case WHITE:
 			white |= v;
+			black &= ~v;
 			break;
 		case BLACK:
 			black |= v;
+			white &= ~v;
 			break;
 		case EMPTY:
 			v = ~v;
@@ -462,7 +464,134 @@ public class OthelloBitBoard implements OthelloBoard {
 		v |= (v >> 8);
 		return v;
 	}
-	
+
+	/**
+	 * generates the exact set of legal moves, without testing each square.
+	 *
+	 * @param state : BLACK or WHITE
+	 * @return a bitboard of every legal move for this player
+	 */
+	public long generateMoves(int state) {
+		if (state == WHITE) {
+			return generateMoves(white, black);
+		} else {
+			return generateMoves(black, white);
+		}
+	}
+
+	/**
+	 * Bit-parallel move generation: in each of the 8 directions, flood from
+	 * our discs through runs of enemy discs (at most 6 long), and a legal move
+	 * is any empty square one step past such a run. Enemy discs on the a and h
+	 * files are masked out for the directions that move sideways, so no run
+	 * wraps from one row to the next.
+	 *
+	 * @param own : bitboard of the moving player's discs
+	 * @param opp : bitboard of the enemy's discs
+	 * @return a bitboard of every legal move
+	 */
+	static long generateMoves(long own, long opp) {
+		long inner = opp & 0x7E7E7E7E7E7E7E7EL;
+
+		long moves = flankUp(own, inner, 1) | flankDown(own, inner, 1) |
+			flankUp(own, opp, 8) | flankDown(own, opp, 8) |
+			flankUp(own, inner, 7) | flankDown(own, inner, 7) |
+			flankUp(own, inner, 9) | flankDown(own, inner, 9);
+
+		return moves & ~(own | opp);
+	}
+
+	/**
+	 * Bit-parallel flip computation, the counterpart of generateMoves: in each
+	 * of the 8 directions, flood from the move through a run of enemy discs,
+	 * and keep the run if our disc is one step past it. No row lookups or
+	 * per-direction coordinate mapping, so many moves can be expanded in a
+	 * tight loop (see ChildBatch).
+	 *
+	 * @param own : bitboard of the moving player's discs
+	 * @param opp : bitboard of the enemy's discs
+	 * @param square : square played (0-63), assumed legal
+	 * @return a bitboard of the discs the move flips
+	 */
+	static long flips(long own, long opp, int square) {
+		long move = 1L << square;
+		long inner = opp & 0x7E7E7E7E7E7E7E7EL;
+
+		return flipsUp(move, own, inner, 1) | flipsDown(move, own, inner, 1) |
+			flipsUp(move, own, opp, 8) | flipsDown(move, own, opp, 8) |
+			flipsUp(move, own, inner, 7) | flipsDown(move, own, inner, 7) |
+			flipsUp(move, own, inner, 9) | flipsDown(move, own, inner, 9);
+	}
+
+	/**
+	 * @return the run of 'run' discs in direction +shift from move, if own
+	 * closes it, else 0
+	 */
+	private static long flipsUp(long move, long own, long run, int shift) {
+		long t = run & (move << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		return ((t << shift) & own) != 0 ? t : 0;
+	}
+
+	/**
+	 * @return the run of 'run' discs in direction -shift from move, if own
+	 * closes it, else 0
+	 */
+	private static long flipsDown(long move, long own, long run, int shift) {
+		long t = run & (move >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		return ((t >>> shift) & own) != 0 ? t : 0;
+	}
+
+	/**
+	 * @return squares one step of +shift past a run of 'run' discs starting
+	 * next to 'own'
+	 */
+	private static long flankUp(long own, long run, int shift) {
+		long t = run & (own << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		t |= run & (t << shift);
+		return t << shift;
+	}
+
+	/**
+	 * @return squares one step of -shift past a run of 'run' discs starting
+	 * next to 'own'
+	 */
+	private static long flankDown(long own, long run, int shift) {
+		long t = run & (own >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		t |= run & (t >>> shift);
+		return t >>> shift;
+	}
+
+	/**
+	 * like fillNeighbors, but leaves out v itself and never wraps around
+	 * the board edges
+	 *
+	 * @param v : original bitboard
+	 * @return every square adjacent to a bit of v
+	 */
+	static long neighbors(long v) {
+		long h = (v << 1) & 0xFEFEFEFEFEFEFEFEL | (v >>> 1) & 0x7F7F7F7F7F7F7F7FL;
+		long row = v | h;
+		return h | (row << 8) | (row >>> 8);
+	}
+
 	/**
 	 * @override
 	 */
@@ -500,7 +629,140 @@ public class OthelloBitBoard implements OthelloBoard {
 			Rom.NOISED[~bhi & 0xFF] ^ Rom.NOISEB[(~bhi >>> 8) & 0xFF] ^
 			Rom.NOISEA[(~bhi >> 16) & 0xFF] ^ Rom.NOISEB[(~bhi >>> 24) & 0xFF];
 	}
-	
+
+	/**
+	 * A 64-bit hash for tables that check the whole key (hashCode() only has
+	 * 32 bits), in the same style: one random table per byte of each bitboard
+	 * (Rom.HASH64), XORed together. Like zobrist hashing it is a sum of
+	 * independent random keys, but 16 lookups from scratch instead of one per
+	 * disc.
+	 *
+	 * @return : a 64-bit hash code
+	 */
+	public long hash64() {
+		long[] t = Rom.HASH64;
+		long w = white;
+		long b = black;
+
+		return t[(int)w & 0xFF] ^ t[256 | ((int)(w >>> 8) & 0xFF)] ^
+			t[512 | ((int)(w >>> 16) & 0xFF)] ^ t[768 | ((int)(w >>> 24) & 0xFF)] ^
+			t[1024 | ((int)(w >>> 32) & 0xFF)] ^ t[1280 | ((int)(w >>> 40) & 0xFF)] ^
+			t[1536 | ((int)(w >>> 48) & 0xFF)] ^ t[1792 | (int)(w >>> 56)] ^
+			t[2048 | ((int)b & 0xFF)] ^ t[2304 | ((int)(b >>> 8) & 0xFF)] ^
+			t[2560 | ((int)(b >>> 16) & 0xFF)] ^ t[2816 | ((int)(b >>> 24) & 0xFF)] ^
+			t[3072 | ((int)(b >>> 32) & 0xFF)] ^ t[3328 | ((int)(b >>> 40) & 0xFF)] ^
+			t[3584 | ((int)(b >>> 48) & 0xFF)] ^ t[3840 | (int)(b >>> 56)];
+	}
+
+	/**
+	 * @return v mirrored top to bottom (y -> 7 - y)
+	 */
+	static long flipVertical(long v) {
+		return Long.reverseBytes(v);
+	}
+
+	/**
+	 * @return v mirrored left to right (x -> 7 - x)
+	 */
+	static long flipHorizontal(long v) {
+		v = ((v >>> 1) & 0x5555555555555555L) | ((v & 0x5555555555555555L) << 1);
+		v = ((v >>> 2) & 0x3333333333333333L) | ((v & 0x3333333333333333L) << 2);
+		return ((v >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((v & 0x0F0F0F0F0F0F0F0FL) << 4);
+	}
+
+	/**
+	 * @return v mirrored in the a1-h8 diagonal (x <-> y)
+	 */
+	static long flipDiagonal(long v) {
+		long t = 0x0F0F0F0F00000000L & (v ^ (v << 28));
+		v ^= t ^ (t >>> 28);
+		t = 0x3333000033330000L & (v ^ (v << 14));
+		v ^= t ^ (t >>> 14);
+		t = 0x5500550055005500L & (v ^ (v << 7));
+		return v ^ t ^ (t >>> 7);
+	}
+
+	/**
+	 * @return v turned a quarter turn ((x, y) -> (7 - y, x))
+	 */
+	static long rotate90(long v) {
+		return flipHorizontal(flipDiagonal(v));
+	}
+
+	/**
+	 * @return v turned a half turn
+	 */
+	static long rotate180(long v) {
+		return flipVertical(flipHorizontal(v));
+	}
+
+	/**
+	 * Apply one of the board's 8 symmetries: bit 2 mirrors in the diagonal,
+	 * then bit 0 mirrors left to right and bit 1 top to bottom. 0 is the
+	 * identity, and every symmetry is its own inverse except 5 and 6, which
+	 * undo each other (the quarter turns).
+	 *
+	 * @param v : bitboard
+	 * @param symmetry : 0-7
+	 * @return the transformed bitboard
+	 */
+	static long transform(long v, int symmetry) {
+		if ((symmetry & 4) != 0) v = flipDiagonal(v);
+		if ((symmetry & 1) != 0) v = flipHorizontal(v);
+		if ((symmetry & 2) != 0) v = flipVertical(v);
+		return v;
+	}
+
+	/**
+	 * @param symmetry : 0-7, see transform()
+	 * @return a copy of this position under the symmetry
+	 */
+	public OthelloBitBoard transform(int symmetry) {
+		return new OthelloBitBoard(transform(white, symmetry), transform(black, symmetry));
+	}
+
+	/**
+	 * The canonical form is the least of the 8 symmetric images (ordered by
+	 * white, then black), so symmetric positions share one representative
+	 * and can share table entries.
+	 *
+	 * @return the canonical form of this position (may be this)
+	 */
+	public OthelloBitBoard canonical() {
+		int s = canonicalSymmetry(white, black);
+		return (s == 0) ? this : transform(s);
+	}
+
+	/**
+	 * @return the symmetry (see transform()) that gives the canonical form
+	 * of a position, 0 if it is already canonical
+	 */
+	static int canonicalSymmetry(long white, long black) {
+		long bestWhite = white;
+		long bestBlack = black;
+		int best = 0;
+		for (int s = 1; s < 8; ++s) {
+			long w = transform(white, s);
+			if (w > bestWhite) {
+				continue;
+			}
+			long b = transform(black, s);
+			if (w < bestWhite || b < bestBlack) {
+				bestWhite = w;
+				bestBlack = b;
+				best = s;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return a 64-bit hash that is equal for all symmetric images
+	 */
+	public long canonicalHash64() {
+		return canonical().hash64();
+	}
+
 	/**
 	* @override
 	*/
@@ -617,6 +879,82 @@ public class OthelloBitBoard implements OthelloBoard {
 				output = new Boolean(testBoardF.gameIsSet());
 				expectedOutput = new Boolean(true);
 				break;
+			case 22:
+				output = testBoardA.generateMoves(BLACK);
+				expectedOutput = 0x0000200000200000L;
+				break;
+			case 23:
+				output = testBoardB.generateMoves(WHITE);
+				expectedOutput = 0x0004051810000000L;
+				break;
+			case 24:
+				output = testBoardC.generateMoves(BLACK);
+				expectedOutput = 0x00004C0418000080L;
+				break;
+			case 25:
+				output = testBoardD.generateMoves(WHITE);
+				expectedOutput = 0L;
+				break;
+			case 26:
+				output = testBoardE.generateMoves(WHITE);
+				expectedOutput = 0x0020600000E01002L;
+				break;
+			case 27:
+				output = flips(testBoardB.white, testBoardB.black, xyMerge(4, 4));
+				expectedOutput = 0x0010100000000000L;
+				break;
+			case 28:
+				output = flips(testBoardB.white, testBoardB.black, xyMerge(2, 5));
+				expectedOutput = 0x0008000200000000L;
+				break;
+			case 29:
+				output = flips(testBoardC.black, testBoardC.white, xyMerge(3, 3));
+				expectedOutput = 0x0040201006080800L;
+				break;
+			case 30:
+				output = flips(testBoardC.black, testBoardC.white, xyMerge(7, 0));
+				expectedOutput = 0x0080808080808070L;
+				break;
+			case 31:
+				output = flips(testBoardE.white, testBoardE.black, xyMerge(1, 0));
+				expectedOutput = 0x0000000000000004L;
+				break;
+			case 32:
+				output = flipVertical(testBoardA.white);
+				expectedOutput = 0x00001C0810000000L;
+				break;
+			case 33:
+				output = flipHorizontal(testBoardA.white);
+				expectedOutput = 0x0000000810380000L;
+				break;
+			case 34:
+				output = flipDiagonal(testBoardA.white);
+				expectedOutput = 0x000000140C040000L;
+				break;
+			case 35:
+				output = rotate90(testBoardA.white);
+				expectedOutput = 0x0000002830200000L;
+				break;
+			case 36: {
+				// the 4 opening moves are all symmetric
+				OthelloBitBoard start = new OthelloBitBoard();
+				OthelloBitBoard c = start.copyAndMakeMove(3, 2, BLACK).canonical();
+				output = Boolean.valueOf(c.equals(start.copyAndMakeMove(2, 3, BLACK).canonical()) &&
+						c.equals(start.copyAndMakeMove(5, 4, BLACK).canonical()) &&
+						c.equals(start.copyAndMakeMove(4, 5, BLACK).canonical()));
+				expectedOutput = Boolean.valueOf(true);
+				break;
+			}
+			case 37: {
+				boolean inverse = true;
+				for (int s = 0; s < 8; ++s) {
+					int undo = (s == 5) ? 6 : (s == 6) ? 5 : s;
+					inverse &= transform(transform(testBoardC.white, s), undo) == testBoardC.white;
+				}
+				output = Boolean.valueOf(inverse);
+				expectedOutput = Boolean.valueOf(true);
+				break;
+			}
 			default:
 				continue;
 			}
@@ -14,6 +14,9 @@ import edu.rit.pj.Comm;
  */
 public class OthelloMTDf extends OthelloAlphaBeta {
 	int passes = 0;
+	int stepMode = MTDfStepper.BOUND; // how each pass moves the null window (see MTDfStepper)
+	int firstStep = 2 * DISC; // first increment of MTDfStepper.STEP, in score units
+	int preSearchDepth = 0; // depth of the search giving the first guess of main(); 0 for none
 
 	public OthelloMTDf() {
 		super();
@@ -46,16 +49,40 @@ public class OthelloMTDf extends OthelloAlphaBeta {
 		int alpha = LOWESTSCORE;
 		int beta  = HIGHESTSCORE;
 		int nullWindow;
+		int pass = 0;
+		MTDfStepper stepper = new MTDfStepper(stepMode, firstStep);
 
 		do {
 			++passes;
-			nullWindow = guess;
-			if (guess == alpha) {
-				nullWindow = guess + 1; // make sure nullWindow-1 >= guess
-			}
+			nullWindow = stepper.next(alpha, beta, guess); // nullWindow-1 >= alpha
 
 			//null window search about the guess
+			if (SearchProfile.ENABLED) {
+				profile.beginSegment("mtdf pass " + pass, maxSearchDepth, nullWindow-1, nullWindow);
+			}
+			SearchEvents.MTDfPassEvent event = new SearchEvents.MTDfPassEvent();
+			long nodesBefore = nodesSearched;
+			long leavesBefore = leafCount;
+			event.begin();
+
 			guess = alphaBetaSearch(nullWindow-1, nullWindow);
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.depth = maxSearchDepth;
+				event.alpha = nullWindow-1;
+				event.beta = nullWindow;
+				event.result = guess;
+				event.nodes = nodesSearched - nodesBefore;
+				event.leaves = leafCount - leavesBefore;
+				event.commit();
+			}
+			SearchEvents.commitTableFill(this);
+
+			if (SearchProfile.ENABLED) {
+				profile.endSegment(guess);
+			}
+			++pass;
 			if (displayToConsole)
 			{
 			System.out.println("Window [" + (nullWindow - 1) + ", " + nullWindow + "] = " + guess);
@@ -67,6 +94,7 @@ public class OthelloMTDf extends OthelloAlphaBeta {
 			} else { // it must have failed high
 				alpha = guess;
 			}
+			stepper.result(guess >= nullWindow);
 		} while (alpha < beta); // do until window converges
 
 		scoreOfConfiguration = guess;
@@ -91,7 +119,24 @@ public class OthelloMTDf extends OthelloAlphaBeta {
 			maxSearchDepth <= finalMaxDepth;
 			maxSearchDepth += 2) {
 			//System.out.println("Searching at..." + maxSearchDepth);
+			SearchEvents.IterationEvent event = new SearchEvents.IterationEvent();
+			long nodesBefore = nodesSearched;
+			long leavesBefore = leafCount;
+			int passesBefore = passes;
+			event.begin();
+			event.guess = guess;
+
 			guess = searchMTDf(guess);
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.depth = maxSearchDepth;
+				event.result = guess;
+				event.passes = passes - passesBefore;
+				event.nodes = nodesSearched - nodesBefore;
+				event.leaves = leafCount - leavesBefore;
+				event.commit();
+			}
 		}
 
 		maxSearchDepth = finalMaxDepth;
@@ -99,6 +144,44 @@ public class OthelloMTDf extends OthelloAlphaBeta {
 		return guess;
 	}
 
+	/**
+	 * @return number of null-window passes made so far
+	 */
+	public int getPasses() {
+		return passes;
+	}
+
+	public int getStepMode() {
+		return stepMode;
+	}
+
+	/**
+	 * @param stepMode : MTDfStepper.BOUND, STEP or BISECT
+	 */
+	public void setStepMode(int stepMode) {
+		this.stepMode = stepMode;
+	}
+
+	public int getFirstStep() {
+		return firstStep;
+	}
+
+	public void setFirstStep(int firstStep) {
+		this.firstStep = firstStep;
+	}
+
+	public int getPreSearchDepth() {
+		return preSearchDepth;
+	}
+
+	/**
+	 * @param depth : depth of the search main() makes for the first guess
+	 * when there is no InitialGuess and no iterative deepening; 0 for none
+	 */
+	public void setPreSearchDepth(int depth) {
+		preSearchDepth = depth;
+	}
+
 	/**
 	 * @param args
 	 */
@@ -121,6 +204,7 @@ public class OthelloMTDf extends OthelloAlphaBeta {
 
 		boolean iterative = true;
 		int guess = 0;
+		boolean guessGiven = false;
 		boolean reSearch = false;
 
 		System.out.println("MTD(f) search");
@@ -138,7 +222,20 @@ public class OthelloMTDf extends OthelloAlphaBeta {
 			}
 			t = findSetting(fileArgs, "InitialGuess");
 			if (t != null) {
-				guess = Integer.parseInt(t);
+				guess = parseScore(t); // given in discs
+				guessGiven = true;
+			}
+			t = findSetting(fileArgs, "MTDfStep");
+			if (t != null) {
+				search.setStepMode(MTDfStepper.parseMode(t));
+			}
+			t = findSetting(fileArgs, "MTDfFirstStep");
+			if (t != null) {
+				search.setFirstStep(Integer.parseInt(t) * DISC); // given in discs
+			}
+			t = findSetting(fileArgs, "PreSearchDepth");
+			if (t != null) {
+				search.setPreSearchDepth(Integer.parseInt(t));
 			}
 			t = findSetting(fileArgs, "ShowMove");
 			if (t != null) {
@@ -153,21 +250,28 @@ public class OthelloMTDf extends OthelloAlphaBeta {
 		if (iterative) {
 			score = search.iterativeMTDf();
 		} else {
+			if (!guessGiven && search.preSearchDepth > 0) {
+				guess = search.preSearch(search.preSearchDepth);
+			}
 			score = search.searchMTDf(guess);
 		}
 
 		long searchTime = (System.currentTimeMillis() - begin);
 		double leafNodesPerSec = ((double)(search.getLeafCount() * 1000) / (double)searchTime);
 
-		System.out.println("score: " + score);
+		System.out.println("score: " + score + " (" + describeScore(score) + ")");
 		System.out.println("leaf nodes: " + search.getLeafCount());
 		System.out.println("non-leaf nodes: " + search.getNodesSearched());
+		System.out.println("passes: " + search.getPasses());
 		System.out.println("Leaf nodes/sec:" + (long)leafNodesPerSec);
 		System.out.println("nodes retreived: " + search.getNodesRetreived());
 		System.out.println("table size: " + search.transpositionTable.size());
 
 		System.out.println("Search time: " + searchTime);
 
+		search.writeProfile();
+		search.closeTrace();
+
 		if (reSearch) {
 			//do re-search to locate the best move. Not part of main search.
 			long r2 = System.currentTimeMillis();
@@ -16,6 +16,9 @@ import edu.rit.pj.ParallelTeam;
  */
 public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 	int passes = 0;
+	int stepMode = MTDfStepper.BOUND; // how each pass moves the null window (see MTDfStepper)
+	int firstStep = 2 * DISC; // first increment of MTDfStepper.STEP, in score units
+	int preSearchDepth = 0; // depth of the search giving the first guess of main(); 0 for none
 	Map<OthelloBitBoard, Integer> threadAssignments;
 
 	/**
@@ -47,8 +50,13 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 
 		int guess; // current guess
 		int nullWindow; // value of the last null-window search
+		MTDfStepper stepper = new MTDfStepper(stepMode, firstStep);
 		int threadIndex = -1;
 
+		SearchEvents.MTDfPassEvent passEvent; // event for the pass in flight
+		long passNodes; // node count at the start of the pass in flight
+		long passLeaves;
+
 		/**
 		 * Construct a new MTDfJobRequest
 		 *
@@ -93,17 +101,32 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 			if (child instanceof AlphaBetaJobRequest) {
 				AlphaBetaJobRequest childNode = (AlphaBetaJobRequest)child;
 
-				int nullWindow = (guess == searchWindow.alpha) ? guess + 1 : guess;
-
 				threadAssignments.put(childNode.item, childNode.threadUsed);
 
 				guess = childNode.retreiveScore();
 
+				passEvent.end();
+				if (passEvent.shouldCommit()) {
+					passEvent.depth = item.getDepth();
+					passEvent.alpha = childNode.searchWindow.alpha;
+					passEvent.beta = childNode.searchWindow.beta;
+					passEvent.result = guess;
+					passEvent.nodes = liveNodesSearched() - passNodes;
+					passEvent.leaves = liveLeafCount() - passLeaves;
+					passEvent.parallel = true;
+					passEvent.commit();
+				}
+				SearchEvents.commitTableFill(OthelloMTDfSMP.this);
+				if (SearchProfile.ENABLED) {
+					profile.endSegment(guess);
+				}
+
 				if (guess < nullWindow) { // if it failed low
 					searchWindow.beta = guess;
 				} else { // it must have failed high
 					searchWindow.alpha = guess;
 				}
+				stepper.result(guess >= nullWindow);
 
 				if (searchWindow.alpha >= searchWindow.beta) {
 					reportJobComplete();
@@ -147,15 +170,19 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 
 			++passes;
 
-			Window nullWindow;
-			if (guess == searchWindow.alpha) {
-				nullWindow = new Window(guess, guess + 1);
-			} else {
-				nullWindow = new Window(guess - 1, guess);
+			nullWindow = stepper.next(searchWindow.alpha, searchWindow.beta, guess);
+
+			passEvent = new SearchEvents.MTDfPassEvent();
+			passNodes = liveNodesSearched();
+			passLeaves = liveLeafCount();
+			passEvent.begin();
+
+			if (SearchProfile.ENABLED) {
+				beginProfileSegment("mtdf-smp pass " + passes, item.getDepth(), nullWindow - 1, nullWindow);
 			}
 
 			//null window search about the guess
-			JobRequest s = new AlphaBetaJobRequest(this, item, nullWindow);
+			JobRequest s = new AlphaBetaJobRequest(this, item, new Window(nullWindow - 1, nullWindow));
 			childJobs.add(s);
 
 			Integer nextIndex = threadAssignments.get(item);
@@ -183,6 +210,10 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 		public int retreiveScore() {
 			return guess;
 		}
+
+		public int jobDepth() {
+			return item.getDepth();
+		}
 	}
 
 	/**
@@ -195,6 +226,11 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 		int guess; // current score/ next guess
 		int nextSearchDepth; // next depth to scan
 
+		SearchEvents.IterationEvent iterationEvent; // event for the depth in flight
+		long iterationNodes; // node count at the start of the depth in flight
+		long iterationLeaves;
+		int iterationPasses;
+
 		/**
 		 * Construct a new IterativeMTDfJobRequest
 		 *
@@ -225,6 +261,17 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 			if (child instanceof MTDfJobRequest) {
 				MTDfJobRequest childNode = (MTDfJobRequest)child;
 
+				iterationEvent.end();
+				if (iterationEvent.shouldCommit()) {
+					iterationEvent.depth = childNode.item.getDepth();
+					iterationEvent.result = childNode.guess;
+					iterationEvent.passes = passes - iterationPasses;
+					iterationEvent.nodes = liveNodesSearched() - iterationNodes;
+					iterationEvent.leaves = liveLeafCount() - iterationLeaves;
+					iterationEvent.parallel = true;
+					iterationEvent.commit();
+				}
+
 				guess = childNode.guess;
 
 				//final depth complete indicates completion
@@ -272,6 +319,13 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 
 			childJobs = new Vector<JobRequest>();
 
+			iterationEvent = new SearchEvents.IterationEvent();
+			iterationNodes = liveNodesSearched();
+			iterationLeaves = liveLeafCount();
+			iterationPasses = passes;
+			iterationEvent.begin();
+			iterationEvent.guess = guess;
+
 			BoardAndDepth nextItem = new BoardAndDepth(item, nextSearchDepth, item.getTurn());
 			JobRequest s = new MTDfJobRequest(this, nextItem, guess);
 			childJobs.add(s);
@@ -290,6 +344,10 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 		public int retreiveScore() {
 			return guess;
 		}
+
+		public int jobDepth() {
+			return item.getDepth();
+		}
 	}
 
 	/**
@@ -326,6 +384,44 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 	}
 
 
+	/**
+	 * @return number of null-window passes made so far
+	 */
+	public int getPasses() {
+		return passes;
+	}
+
+	public int getStepMode() {
+		return stepMode;
+	}
+
+	/**
+	 * @param stepMode : MTDfStepper.BOUND, STEP or BISECT
+	 */
+	public void setStepMode(int stepMode) {
+		this.stepMode = stepMode;
+	}
+
+	public int getFirstStep() {
+		return firstStep;
+	}
+
+	public void setFirstStep(int firstStep) {
+		this.firstStep = firstStep;
+	}
+
+	public int getPreSearchDepth() {
+		return preSearchDepth;
+	}
+
+	/**
+	 * @param depth : depth of the search main() makes for the first guess
+	 * when there is no InitialGuess and no iterative deepening; 0 for none
+	 */
+	public void setPreSearchDepth(int depth) {
+		preSearchDepth = depth;
+	}
+
 	/**
 	 * @param args
 	 */
@@ -348,6 +444,7 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 
 		boolean iterative = true;
 		int guess = 0;
+		boolean guessGiven = false;
 		boolean reSearch = false;
 
 		System.out.println("Parallel MTD(f) search");
@@ -365,7 +462,20 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 			}
 			t = findSetting(fileArgs, "InitialGuess");
 			if (t != null) {
-				guess = Integer.parseInt(t);
+				guess = parseScore(t); // given in discs
+				guessGiven = true;
+			}
+			t = findSetting(fileArgs, "MTDfStep");
+			if (t != null) {
+				search.setStepMode(MTDfStepper.parseMode(t));
+			}
+			t = findSetting(fileArgs, "MTDfFirstStep");
+			if (t != null) {
+				search.setFirstStep(Integer.parseInt(t) * DISC); // given in discs
+			}
+			t = findSetting(fileArgs, "PreSearchDepth");
+			if (t != null) {
+				search.setPreSearchDepth(Integer.parseInt(t));
 			}
 			t = findSetting(fileArgs, "SharedSearchDepth");
 			if (t != null) {
@@ -387,6 +497,9 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 		if (iterative) {
 			search.enqueueIterativeMTDfSMP(guess);
 		} else {
+			if (!guessGiven && search.preSearchDepth > 0) {
+				guess = search.preSearch(search.preSearchDepth);
+			}
 			search.enqueueMTDfSMP(guess);
 		}
 
@@ -395,9 +508,10 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 		long searchTime = (System.currentTimeMillis() - begin);
 		double leafNodesPerSec = ((double)(search.getLeafCount() * 1000) / (double)searchTime);
 
-		System.out.println("score: " + search.getSearchScore());
+		System.out.println("score: " + search.getSearchScore() + " (" + describeScore(search.getSearchScore()) + ")");
 		System.out.println("leaf nodes: " + search.getLeafCount());
 		System.out.println("non-leaf nodes: " + search.getNodesSearched());
+		System.out.println("passes: " + search.getPasses());
 		System.out.println("Leaf nodes/sec:" + (long)leafNodesPerSec);
 		System.out.println("nodes retreived: " + search.getNodesRetreived());
 		System.out.println("table size: " + search.transpositionTable.size());
@@ -405,9 +519,17 @@ public class OthelloMTDfSMP extends OthelloAlphaBetaSMP {
 		System.out.println("totalJobsExecuted: " + search.getTotalJobsExecuted());
 		System.out.println("leafJobsExecuted: " + search.getLeafJobsExecuted());
 		System.out.println("jobsSkipped: " + search.getJobsSkipped());
+		System.out.println("steals: " + search.metrics.getSteals() + "/" + search.metrics.getStealAttempts());
 
 		System.out.println("Search time: " + searchTime);
 
+		if (search.displayToConsole) {
+			search.metrics.print();
+		}
+
+		search.writeProfile();
+		search.closeTrace();
+
 		if (reSearch) {
 			//do re-search to locate the best move. Not part of main search.
 			long r2 = System.currentTimeMillis();
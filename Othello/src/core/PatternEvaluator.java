@@ -0,0 +1,302 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Pattern-based leaf evaluation.
+ *
+ * The board is covered by 46 pattern instances (edges + 2 X-squares, 3x3 and
+ * 2x5 corners, diagonals of length 4-8, and the 2nd-4th rows and columns).
+ * Every instance of a pattern shares one weight table. An instance's squares
+ * are read as base-3 digits (0 empty, 1 own, 2 opponent) to give the index
+ * into that table, and the score is the sum of all instances' weights.
+ *
+ * Weights are shorts in units of 1/WEIGHT_SCALE of a disc, with one set of
+ * tables per game stage (see EvaluationStages). All tables of all stages are
+ * packed into one array: stage s, group g, index i is at
+ * s * STAGE_SIZE + GROUP_OFFSET[g] + i. They are loaded from a binary file
+ * written by EvaluatorTrainer:
+ * int magic ("OPAT"), int version, int groupCount, int stageCount,
+ * 65 bytes stage of each disc count, groupCount ints table sizes,
+ * then stageCount * STAGE_SIZE shorts
+ * Version 1 files have a single stage, version 2 files equal stage buckets
+ * (stageCount after groupCount, then for each stage, for each group:
+ * int tableSize, tableSize shorts).
+ */
+public class PatternEvaluator implements LeafEvaluator {
+	static final int MAGIC = 0x4F504154;
+	static final int VERSION = 3;
+
+	static final int WEIGHT_SHIFT = 5;
+	static final int WEIGHT_SCALE = 1 << WEIGHT_SHIFT;
+
+	static final int[] POW3 = { 1, 3, 9, 27, 81, 243, 729, 2187, 6561, 19683, 59049 };
+
+	//pattern groups
+	static final int EDGE_2X = 0;
+	static final int CORNER_3X3 = 1;
+	static final int CORNER_2X5 = 2;
+	static final int DIAG_8 = 3;
+	static final int DIAG_7 = 4;
+	static final int DIAG_6 = 5;
+	static final int DIAG_5 = 6;
+	static final int DIAG_4 = 7;
+	static final int ROW_2 = 8;
+	static final int ROW_3 = 9;
+	static final int ROW_4 = 10;
+	static final int GROUPS = 11;
+
+	static final String[] GROUP_NAMES = { "edge+2X", "corner 3x3", "corner 2x5",
+		"diagonal 8", "diagonal 7", "diagonal 6", "diagonal 5", "diagonal 4",
+		"row 2", "row 3", "row 4" };
+
+	/*
+	 * squares of each group's base instance as {x, y} pairs, and which of the
+	 * board's symmetries produce its other instances
+	 */
+	private static final int[][][] BASE_SQUARES = {
+		{{0,0},{1,0},{2,0},{3,0},{4,0},{5,0},{6,0},{7,0},{1,1},{6,1}},
+		{{0,0},{1,0},{2,0},{0,1},{1,1},{2,1},{0,2},{1,2},{2,2}},
+		{{0,0},{1,0},{2,0},{3,0},{4,0},{0,1},{1,1},{2,1},{3,1},{4,1}},
+		{{0,0},{1,1},{2,2},{3,3},{4,4},{5,5},{6,6},{7,7}},
+		{{1,0},{2,1},{3,2},{4,3},{5,4},{6,5},{7,6}},
+		{{2,0},{3,1},{4,2},{5,3},{6,4},{7,5}},
+		{{3,0},{4,1},{5,2},{6,3},{7,4}},
+		{{4,0},{5,1},{6,2},{7,3}},
+		{{0,1},{1,1},{2,1},{3,1},{4,1},{5,1},{6,1},{7,1}},
+		{{0,2},{1,2},{2,2},{3,2},{4,2},{5,2},{6,2},{7,2}},
+		{{0,3},{1,3},{2,3},{3,3},{4,3},{5,3},{6,3},{7,3}},
+	};
+
+	// number of 90 degree rotations used per group, and whether the
+	// transposed instances are distinct squares sets too
+	private static final int[] ROTATIONS = { 4, 4, 4, 2, 4, 4, 4, 4, 4, 4, 4 };
+	private static final boolean[] TRANSPOSED = { false, false, true, false, false, false, false, false, false, false, false };
+
+	static final int[][] INSTANCE_SQUARES; // bit index (0-63) of each square of each instance
+	static final int[] INSTANCE_GROUP;
+	static final int[] INSTANCE_OFFSET; // GROUP_OFFSET of each instance's group
+	static final int INSTANCES;
+
+	static final int[] GROUP_OFFSET; // start of each group's table within a stage
+	static final int STAGE_SIZE; // weights per stage
+
+	static {
+		int count = 0;
+		for (int g = 0; g < GROUPS; ++g) {
+			count += ROTATIONS[g] * (TRANSPOSED[g] ? 2 : 1);
+		}
+		INSTANCES = count;
+		INSTANCE_SQUARES = new int[count][];
+		INSTANCE_GROUP = new int[count];
+
+		int n = 0;
+		for (int g = 0; g < GROUPS; ++g) {
+			for (int t = 0; t < (TRANSPOSED[g] ? 2 : 1); ++t) {
+				for (int r = 0; r < ROTATIONS[g]; ++r) {
+					int[][] base = BASE_SQUARES[g];
+					int[] squares = new int[base.length];
+
+					for (int i = 0; i < base.length; ++i) {
+						int x = base[i][0];
+						int y = base[i][1];
+						if (t == 1) { // transpose
+							int tmp = x; x = y; y = tmp;
+						}
+						for (int k = 0; k < r; ++k) { // rotate 90 degrees
+							int tmp = x; x = 7 - y; y = tmp;
+						}
+						squares[i] = OthelloBitBoard.xyMerge(x, y);
+					}
+
+					INSTANCE_SQUARES[n] = squares;
+					INSTANCE_GROUP[n] = g;
+					++n;
+				}
+			}
+		}
+
+		GROUP_OFFSET = new int[GROUPS];
+		int offset = 0;
+		for (int g = 0; g < GROUPS; ++g) {
+			GROUP_OFFSET[g] = offset;
+			offset += tableSize(g);
+		}
+		STAGE_SIZE = offset;
+
+		INSTANCE_OFFSET = new int[count];
+		for (int i = 0; i < count; ++i) {
+			INSTANCE_OFFSET[i] = GROUP_OFFSET[INSTANCE_GROUP[i]];
+		}
+	}
+
+	/**
+	 * @return number of entries in the weight table of group g
+	 */
+	static int tableSize(int g) {
+		return POW3[BASE_SQUARES[g].length];
+	}
+
+	short[] weights; // packed tables of all stages
+	byte[] stageOfDiscs; // stage layout
+
+	/**
+	 * construct with a single stage of all-zero weights
+	 */
+	public PatternEvaluator() {
+		this(EvaluationStages.buckets(1));
+	}
+
+	/**
+	 * construct with all weights zero
+	 *
+	 * @param stageLayout : stage of each disc count (see EvaluationStages)
+	 */
+	public PatternEvaluator(byte[] stageLayout) {
+		stageOfDiscs = stageLayout;
+		weights = new short[EvaluationStages.stageCount(stageLayout) * STAGE_SIZE];
+	}
+
+	/**
+	 * construct sharing another evaluator's weights
+	 */
+	protected PatternEvaluator(PatternEvaluator o) {
+		weights = o.weights;
+		stageOfDiscs = o.stageOfDiscs;
+	}
+
+	/**
+	 * install a new set of weight tables
+	 *
+	 * @param w : packed tables, STAGE_SIZE per stage
+	 * @param stageLayout : stage of each disc count
+	 */
+	protected void setWeights(short[] w, byte[] stageLayout) {
+		weights = w;
+		stageOfDiscs = stageLayout;
+	}
+
+	public int getStageCount() {
+		return weights.length / STAGE_SIZE;
+	}
+
+	/**
+	 * @param own : bitboard of the evaluating player's discs
+	 * @param opp : bitboard of the opponent's discs
+	 * @param instance : pattern instance
+	 * @return the base-3 index of the instance
+	 */
+	static int patternIndex(long own, long opp, int instance) {
+		int[] squares = INSTANCE_SQUARES[instance];
+		int index = 0;
+		for (int i = 0; i < squares.length; ++i) {
+			int sq = squares[i];
+			index += POW3[i] * ((int)(own >>> sq) & 1);
+			index += 2 * POW3[i] * ((int)(opp >>> sq) & 1);
+		}
+		return index;
+	}
+
+	public int evaluate(OthelloBitBoard position, int turn) {
+		long own = (turn == OthelloBoard.WHITE) ? position.white : position.black;
+		long opp = (turn == OthelloBoard.WHITE) ? position.black : position.white;
+		int base = stageOfDiscs[EvaluationStages.discs(position)] * STAGE_SIZE;
+
+		int score = 0;
+		for (int i = 0; i < INSTANCES; ++i) {
+			score += weights[base + INSTANCE_OFFSET[i] + patternIndex(own, opp, i)];
+		}
+		return score >> (WEIGHT_SHIFT - OthelloAlphaBeta.SCORE_SHIFT);
+	}
+
+	public LeafEvaluator copy() {
+		return this; // weights are read-only once loaded
+	}
+
+	/**
+	 * load weights from a file
+	 *
+	 * @param filename : weight file
+	 */
+	public void load(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a pattern weight file");
+			}
+			int version = in.readInt();
+			if (version < 1 || version > VERSION) {
+				throw new IOException("unsupported pattern weight version " + version);
+			}
+			if (in.readInt() != GROUPS) {
+				throw new IOException("pattern group count mismatch");
+			}
+			int stages = (version == 1) ? 1 : in.readInt();
+			if (stages < 1 || stages > 61) {
+				throw new IOException("bad stage count " + stages);
+			}
+
+			byte[] layout;
+			if (version == VERSION) {
+				layout = EvaluationStages.read(in, stages);
+				for (int g = 0; g < GROUPS; ++g) {
+					checkTableSize(g, in.readInt());
+				}
+			} else {
+				layout = EvaluationStages.buckets(stages);
+			}
+
+			short[] w = new short[stages * STAGE_SIZE];
+			for (int s = 0; s < stages; ++s) {
+				for (int g = 0; g < GROUPS; ++g) {
+					if (version != VERSION) {
+						checkTableSize(g, in.readInt());
+					}
+					int offset = s * STAGE_SIZE + GROUP_OFFSET[g];
+					for (int i = 0; i < tableSize(g); ++i) {
+						w[offset + i] = in.readShort();
+					}
+				}
+			}
+			setWeights(w, layout);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void checkTableSize(int g, int size) throws IOException {
+		if (size != tableSize(g)) {
+			throw new IOException("pattern table size mismatch for " + GROUP_NAMES[g]);
+		}
+	}
+
+	/**
+	 * write the weights to a file
+	 *
+	 * @param filename : weight file
+	 */
+	public void save(String filename) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(GROUPS);
+			out.writeInt(getStageCount());
+			EvaluationStages.write(out, stageOfDiscs);
+			for (int g = 0; g < GROUPS; ++g) {
+				out.writeInt(tableSize(g));
+			}
+			for (int i = 0; i < weights.length; ++i) {
+				out.writeShort(weights[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
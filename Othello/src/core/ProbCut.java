@@ -0,0 +1,200 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Multi-ProbCut models: for pairs of a deep and a shallow search depth, a
+ * linear prediction of the deep score from the shallow one,
+ * deep = slope * shallow + intercept, with the standard deviation of its
+ * error. There is one model per pair and game stage (see EvaluationStages),
+ * fitted offline by ProbCutFitter.
+ *
+ * A node at a deep depth is cut if a null-window shallow search shows the
+ * prediction is outside the window by at least confidence standard
+ * deviations (see OthelloAlphaBeta.probCut()). A depth may have several
+ * pairs; they are tried in order, cheapest shallow search first.
+ *
+ * File format:
+ * int magic ("OMPC"), int version, int stageCount,
+ * 65 bytes stage of each disc count, int pairCount,
+ * then for each pair: byte deep, byte shallow,
+ * then for each stage: float slope, float intercept, float sigma
+ *
+ * The models are read-only once loaded, so one object is shared by every
+ * search object.
+ */
+public class ProbCut {
+	static final int MAGIC = 0x4F4D5043;
+	static final int VERSION = 2; // models are in OthelloAlphaBeta score units since version 2
+
+	static final int MAX_DEPTH = 64;
+	static final double DEFAULT_CONFIDENCE = 1.5;
+
+	// cuts are only tried for window bounds inside this range, which holds
+	// every evaluation but no end-of-game or infinite score
+	static final int SCORE_LIMIT = OthelloAlphaBeta.PROVEN_WIN;
+
+	byte[] stageOfDiscs;
+	int stages;
+	int[] deep = new int[0];
+	int[] shallow = new int[0];
+	float[] slope; // indexed by pair * stages + stage
+	float[] intercept;
+	float[] sigma;
+
+	int[] firstPair = new int[MAX_DEPTH + 1]; // first pair of each deep depth, -1 if none
+	double confidence = DEFAULT_CONFIDENCE;
+
+	/**
+	 * install a set of models
+	 *
+	 * @param deep : deep depth of each pair, ascending
+	 * @param shallow : shallow depth of each pair, ascending within a deep depth
+	 * @param slope : slope of each pair and stage (pair * stages + stage)
+	 * @param intercept : intercept of each pair and stage
+	 * @param sigma : error of each pair and stage; infinite if never cut
+	 * @param stageLayout : stage of each disc count
+	 */
+	void setModels(int[] deep, int[] shallow, float[] slope, float[] intercept, float[] sigma,
+			byte[] stageLayout) {
+		this.deep = deep;
+		this.shallow = shallow;
+		this.slope = slope;
+		this.intercept = intercept;
+		this.sigma = sigma;
+		stageOfDiscs = stageLayout;
+		stages = EvaluationStages.stageCount(stageLayout);
+
+		java.util.Arrays.fill(firstPair, -1);
+		for (int p = deep.length - 1; p >= 0; --p) {
+			firstPair[deep[p]] = p;
+		}
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * @param confidence : standard deviations the prediction must be outside
+	 * the window by; higher cuts less and errs less
+	 */
+	public void setConfidence(double confidence) {
+		this.confidence = confidence;
+	}
+
+	/**
+	 * @return the first pair whose deep depth is this, or -1
+	 */
+	int firstPair(int depth) {
+		return (depth >= 0 && depth <= MAX_DEPTH) ? firstPair[depth] : -1;
+	}
+
+	/**
+	 * @return the shallow score at or above which the deep score is predicted
+	 * to be at least beta, or NOSCORE if the model cannot cut
+	 */
+	int highBound(int pair, int discs, int beta) {
+		int m = pair * stages + stageOfDiscs[discs];
+		if (!(slope[m] > 0) || Float.isInfinite(sigma[m])) {
+			return OthelloAlphaBeta.NOSCORE;
+		}
+		double bound = Math.ceil((beta + confidence * sigma[m] - intercept[m]) / slope[m]);
+		return (Math.abs(bound) < SCORE_LIMIT) ? (int)bound : OthelloAlphaBeta.NOSCORE;
+	}
+
+	/**
+	 * @return the shallow score at or below which the deep score is predicted
+	 * to be at most alpha, or NOSCORE if the model cannot cut
+	 */
+	int lowBound(int pair, int discs, int alpha) {
+		int m = pair * stages + stageOfDiscs[discs];
+		if (!(slope[m] > 0) || Float.isInfinite(sigma[m])) {
+			return OthelloAlphaBeta.NOSCORE;
+		}
+		double bound = Math.floor((alpha - confidence * sigma[m] - intercept[m]) / slope[m]);
+		return (Math.abs(bound) < SCORE_LIMIT) ? (int)bound : OthelloAlphaBeta.NOSCORE;
+	}
+
+	/**
+	 * load models from a file
+	 *
+	 * @param filename : model file
+	 */
+	public void load(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a ProbCut model file");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported ProbCut model version " + version);
+			}
+			int stageCount = in.readInt();
+			if (stageCount < 1 || stageCount > 61) {
+				throw new IOException("bad stage count " + stageCount);
+			}
+			byte[] layout = EvaluationStages.read(in, stageCount);
+
+			int pairs = in.readInt();
+			if (pairs < 0 || pairs > MAX_DEPTH * MAX_DEPTH) {
+				throw new IOException("bad pair count " + pairs);
+			}
+			int[] d = new int[pairs];
+			int[] s = new int[pairs];
+			float[] a = new float[pairs * stageCount];
+			float[] b = new float[pairs * stageCount];
+			float[] e = new float[pairs * stageCount];
+			for (int p = 0; p < pairs; ++p) {
+				d[p] = in.readByte();
+				s[p] = in.readByte();
+				if (s[p] < 1 || s[p] >= d[p] || d[p] > MAX_DEPTH ||
+						(p > 0 && (d[p] < d[p - 1] || (d[p] == d[p - 1] && s[p] <= s[p - 1])))) {
+					throw new IOException("bad depth pair " + d[p] + ":" + s[p]);
+				}
+				for (int stage = 0; stage < stageCount; ++stage) {
+					a[p * stageCount + stage] = in.readFloat();
+					b[p * stageCount + stage] = in.readFloat();
+					e[p * stageCount + stage] = in.readFloat();
+				}
+			}
+			setModels(d, s, a, b, e, layout);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * write the models to a file
+	 *
+	 * @param filename : model file
+	 */
+	public void save(String filename) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(stages);
+			EvaluationStages.write(out, stageOfDiscs);
+			out.writeInt(deep.length);
+			for (int p = 0; p < deep.length; ++p) {
+				out.writeByte(deep[p]);
+				out.writeByte(shallow[p]);
+				for (int stage = 0; stage < stages; ++stage) {
+					out.writeFloat(slope[p * stages + stage]);
+					out.writeFloat(intercept[p * stages + stage]);
+					out.writeFloat(sigma[p * stages + stage]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import edu.rit.pj.Comm;
+
+/**
+ * Fits the Multi-ProbCut models (see ProbCut) on positions from recorded
+ * games (one game per line, as for EvaluatorTrainer).
+ *
+ * Each sampled position is searched full width to every depth used by the
+ * depth pairs, with the leaf evaluator given by the usual evaluator settings
+ * (Evaluator, EvaluatorWeights, Mobility, ...), so the models match the
+ * search that loads them. Each pair and stage gets a least-squares line
+ * deep = slope * shallow + intercept and the standard deviation of its
+ * error. Positions where a search reaches the end of the game are skipped.
+ * A model with fewer than MIN_SAMPLES samples is written with an infinite
+ * sigma, so it never cuts.
+ *
+ * NOT part of the primary execution.
+ */
+public class ProbCutFitter {
+	static final int MIN_SAMPLES = 20;
+	static final String DEFAULT_PAIRS = "3:1,4:2,5:1,6:2,7:3,8:4";
+
+	String gamesFile;
+	int positions = 1000;
+	int stages = 4;
+	long seed = 1;
+	int[] deep;
+	int[] shallow;
+	int maxDepth;
+
+	byte[] stageOfDiscs;
+	OthelloAlphaBeta search = new OthelloAlphaBeta();
+	EvaluatorTrainer.GameReplay game = new EvaluatorTrainer.GameReplay();
+
+	// least-squares sums, indexed by pair * stages + stage
+	long[] count;
+	double[] sumX, sumY, sumXX, sumXY, sumYY;
+
+	/**
+	 * read the fitting settings
+	 *
+	 * @return false if a setting is missing or bad
+	 */
+	boolean readSettings(List<String> args) {
+		try {
+			gamesFile = OthelloAlphaBeta.findSetting(args, "Games");
+			if (gamesFile == null) {
+				return false;
+			}
+			String t = OthelloAlphaBeta.findSetting(args, "Positions");
+			if (t != null) {
+				positions = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Stages");
+			if (t != null) {
+				stages = Integer.parseInt(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Seed");
+			if (t != null) {
+				seed = Long.parseLong(t);
+			}
+			t = OthelloAlphaBeta.findSetting(args, "Pairs");
+			if (!parsePairs(t == null ? DEFAULT_PAIRS : t)) {
+				return false;
+			}
+			search.readEvaluatorSettings(args);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		return positions >= 1 && stages >= 1 && stages <= 61;
+	}
+
+	/**
+	 * @param list : pairs as deep:shallow, comma separated, sorted by deep
+	 * depth and then shallow depth
+	 */
+	boolean parsePairs(String list) {
+		String[] items = list.split(",");
+		deep = new int[items.length];
+		shallow = new int[items.length];
+		for (int p = 0; p < items.length; ++p) {
+			String[] depths = items[p].trim().split(":");
+			if (depths.length != 2) {
+				return false;
+			}
+			deep[p] = Integer.parseInt(depths[0].trim());
+			shallow[p] = Integer.parseInt(depths[1].trim());
+			if (shallow[p] < 1 || shallow[p] >= deep[p] || deep[p] > ProbCut.MAX_DEPTH ||
+					(p > 0 && (deep[p] < deep[p - 1] ||
+							(deep[p] == deep[p - 1] && shallow[p] <= shallow[p - 1])))) {
+				return false;
+			}
+			maxDepth = Math.max(maxDepth, deep[p]);
+		}
+		return true;
+	}
+
+	/**
+	 * @return full-width score of a position searched to a depth
+	 */
+	int score(OthelloBitBoard position, int turn, int depth) {
+		search.setRootNode(position, turn);
+		search.setMaxSearchDepth(depth);
+		return search.alphaBetaSearch();
+	}
+
+	/**
+	 * search a position to every depth and add it to the sums
+	 *
+	 * @return false if the position was skipped
+	 */
+	boolean addPosition(OthelloBitBoard position, int turn) {
+		search.transpositionTable.clear();
+
+		int[] scores = new int[maxDepth + 1];
+		for (int depth = 1; depth <= maxDepth; ++depth) {
+			scores[depth] = score(position, turn, depth);
+			if (Math.abs(scores[depth]) >= ProbCut.SCORE_LIMIT) {
+				return false; // reached the end of the game
+			}
+		}
+
+		int stage = stageOfDiscs[EvaluationStages.discs(position)];
+		for (int p = 0; p < deep.length; ++p) {
+			int m = p * stages + stage;
+			double x = scores[shallow[p]];
+			double y = scores[deep[p]];
+			++count[m];
+			sumX[m] += x;
+			sumY[m] += y;
+			sumXX[m] += x * x;
+			sumXY[m] += x * y;
+			sumYY[m] += y * y;
+		}
+		return true;
+	}
+
+	/**
+	 * sample positions from the games and search them
+	 */
+	void collect(List<String> games) {
+		int models = deep.length * stages;
+		count = new long[models];
+		sumX = new double[models];
+		sumY = new double[models];
+		sumXX = new double[models];
+		sumXY = new double[models];
+		sumYY = new double[models];
+
+		Random random = new Random(seed);
+		int added = 0;
+		int attempts = 0;
+		while (added < positions && attempts < positions * 20) {
+			++attempts;
+			int samples = game.replay(games.get(random.nextInt(games.size())));
+			if (samples <= 0) {
+				continue;
+			}
+
+			// only positions the deepest search cannot finish
+			int k = random.nextInt(samples);
+			OthelloBitBoard position = new OthelloBitBoard(game.white[k], game.black[k]);
+			if (64 - EvaluationStages.discs(position) <= maxDepth) {
+				continue;
+			}
+
+			if (addPosition(position, game.turn[k])) {
+				++added;
+				if (added % 100 == 0) {
+					System.out.println(added + " positions");
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the fitted models
+	 */
+	ProbCut fit() {
+		int models = deep.length * stages;
+		float[] slope = new float[models];
+		float[] intercept = new float[models];
+		float[] sigma = new float[models];
+
+		for (int m = 0; m < models; ++m) {
+			double n = count[m];
+			double varX = sumXX[m] - sumX[m] * sumX[m] / n;
+			if (count[m] < MIN_SAMPLES || !(varX > 0)) {
+				slope[m] = 1.0f;
+				sigma[m] = Float.POSITIVE_INFINITY;
+				continue;
+			}
+			double covXY = sumXY[m] - sumX[m] * sumY[m] / n;
+			double a = covXY / varX;
+			double b = (sumY[m] - a * sumX[m]) / n;
+
+			// residual sum of squares from the same sums
+			double residual = sumYY[m] - 2 * a * sumXY[m] - 2 * b * sumY[m] +
+					a * a * sumXX[m] + 2 * a * b * sumX[m] + b * b * n;
+			slope[m] = (float)a;
+			intercept[m] = (float)b;
+			sigma[m] = (float)Math.sqrt(Math.max(residual, 0) / (n - 2));
+		}
+
+		ProbCut fitted = new ProbCut();
+		fitted.setModels(deep, shallow, slope, intercept, sigma, stageOfDiscs);
+		return fitted;
+	}
+
+	/**
+	 * @param args : Games=[file] [Positions=n] [Pairs=d:s,...] [Stages=n]
+	 * [Seed=n] [Output=file], and the evaluator settings of the search
+	 */
+	public static void main(String[] args) {
+		try {
+			Comm.init(args);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		ProbCutFitter fitter = new ProbCutFitter();
+		List<String> settings = Arrays.asList(args);
+		if (!fitter.readSettings(settings)) {
+			System.out.println("Usage: ProbCutFitter Games=[file] [Positions=n] [Pairs=d:s,...] " +
+					"[Stages=n] [Seed=n] [Output=file] [Evaluator=...]");
+			return;
+		}
+		String output = OthelloAlphaBeta.findSetting(settings, "Output");
+		if (output == null) {
+			output = "ProbCut.dat";
+		}
+		fitter.stageOfDiscs = EvaluationStages.buckets(fitter.stages);
+
+		List<String> games = new ArrayList<String>();
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(fitter.gamesFile));
+			String line;
+			while ((line = in.readLine()) != null) {
+				games.add(line);
+			}
+			in.close();
+		} catch (IOException e) {
+			System.out.println("Error reading games");
+			e.printStackTrace();
+			return;
+		}
+		if (games.isEmpty()) {
+			System.out.println("No games in " + fitter.gamesFile);
+			return;
+		}
+
+		long begin = System.currentTimeMillis();
+		fitter.collect(games);
+		ProbCut models = fitter.fit();
+
+		System.out.println("deep, shallow, stage, samples, slope, intercept, sigma");
+		for (int p = 0; p < fitter.deep.length; ++p) {
+			for (int stage = 0; stage < fitter.stages; ++stage) {
+				int m = p * fitter.stages + stage;
+				System.out.println(fitter.deep[p] + ", " + fitter.shallow[p] + ", " + stage + ", " +
+						fitter.count[m] + ", " + String.format("%.3f, %.2f, %.2f",
+						models.slope[m], models.intercept[m], models.sigma[m]));
+			}
+		}
+		System.out.println("Time: " + (System.currentTimeMillis() - begin));
+
+		try {
+			models.save(output);
+			System.out.println("Models written to " + output);
+		} catch (IOException e) {
+			System.out.println("Error writing models");
+			e.printStackTrace();
+		}
+	}
+}
@@ -30,6 +30,28 @@ public class Rom {
 		return array;
 	}
 	
+	/**
+	 * Stable squares of an edge (8 squares). The index is the edge read as a
+	 * base-3 number, square k being digit k (0 empty, 1 and 2 the two colors),
+	 * and each entry has bit k set if square k holds a disc that no sequence
+	 * of moves can flip. 3^8 = 6561 Bytes, generated by TableGenerator.
+	 */
+	public static byte[] EDGESTABILITY = loadEdgeStabilityTable();
+
+	static private byte[] loadEdgeStabilityTable() {
+		byte[] array = new byte[6561];
+		try {
+			File file = new File("EdgeStability.dat");
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			in.readFully(array);
+			in.close();
+		} catch (IOException e) {
+			//all zero is still correct, it only finds fewer stable discs
+			System.err.println("WARNING: could not load edge stability table");
+		}
+		return array;
+	}
+
 	/**
 	 * This lookup table can map the board index (0-63) to the bitboard that has set bits in
 	 * every direction from the indexed point on the board. This is left/right, up/down, and
@@ -214,4 +236,26 @@ public class Rom {
 		0x3EBCB4B1, 0x46C7D034, 0xE3EE3A11, 0x6DC56495, 0x9213D223, 0xD5B519D1, 0x76CC3ED5, 0x85E391E6, 
 		0xE8612ADC, 0x722FA377, 0x7D21B4FD, 0xCAC74A2F, 0xFFA04368, 0xA33A6E97, 0xE10278AC, 0xB107F5AE 
 	};
+
+	/**
+	 * Random keys for OthelloBitBoard.hash64(). Table k (entries 256k to
+	 * 256k+255) is indexed by byte k of the position: bytes 0-7 of white,
+	 * then 8-15 of black. Table 16 is for the depth and turn of a
+	 * transposition table key. Generated with splitmix64 from a fixed seed, so
+	 * hashes are the same on every run.
+	 */
+	public static final long[] HASH64 = makeHashTable(17 * 256, 0x4F74686C6C6F3634L);
+
+	static private long[] makeHashTable(int size, long seed) {
+		long[] array = new long[size];
+		long state = seed;
+		for (int i = 0; i < size; ++i) {
+			state += 0x9E3779B97F4A7C15L;
+			long z = state;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			array[i] = z ^ (z >>> 31);
+		}
+		return array;
+	}
 }
@@ -0,0 +1,268 @@
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-worker scheduler counters for the SMP engines.
+ *
+ * Each worker thread owns one Worker and is the only thread that writes to it,
+ * so the hot loop needs no synchronization. The engine folds the workers into
+ * its own totals once the parallel region has joined. JMX readers see the
+ * workers' fields directly and may observe slightly stale values.
+ */
+public class SchedulerMetrics implements SchedulerMetricsMBean {
+	/*
+	 * counters owned by a single thread
+	 */
+	static class Worker {
+		long jobsExecuted;
+		long leafJobsExecuted;
+		long jobsSkipped;
+		long stealAttempts;
+		long steals;
+
+		long busyNanos; // executing jobs
+		long spinNanos; // looping without a job, excluding steal scans
+		long stealNanos; // scanning other threads' queues
+
+		long queueDepthSamples;
+		long queueDepthTotal;
+		long queueDepthMax;
+
+		long leafCount;
+		long nodesSearched;
+
+		long allocatedBytes; // heap allocated by this worker during the run, -1 if unsupported
+
+		void sampleQueueDepth(int depth) {
+			++queueDepthSamples;
+			queueDepthTotal += depth;
+			if (depth > queueDepthMax) {
+				queueDepthMax = depth;
+			}
+		}
+
+		void clear() {
+			jobsExecuted = leafJobsExecuted = jobsSkipped = 0;
+			stealAttempts = steals = 0;
+			busyNanos = spinNanos = stealNanos = 0;
+			queueDepthSamples = queueDepthTotal = queueDepthMax = 0;
+			leafCount = nodesSearched = 0;
+			allocatedBytes = 0;
+		}
+	}
+
+	volatile Worker[] workers = new Worker[0];
+	volatile boolean searching = false;
+
+	private static final AtomicInteger instances = new AtomicInteger();
+	private final int id = instances.incrementAndGet(); // tells apart engines of one class
+
+	private ObjectName registeredName = null;
+
+	/**
+	 * make sure there are at least n workers, and clear them all
+	 */
+	void prepare(int n) {
+		Worker[] w = workers;
+		if (w.length < n) {
+			Worker[] grown = new Worker[n];
+			System.arraycopy(w, 0, grown, 0, w.length);
+			for (int i = w.length; i < n; ++i) {
+				grown[i] = new Worker();
+			}
+			w = grown;
+		}
+		for (Worker k : w) {
+			k.clear();
+		}
+		workers = w;
+	}
+
+	Worker get(int threadIndex) {
+		return workers[threadIndex];
+	}
+
+	/**
+	 * register with the platform MBean server as
+	 * core:type=SchedulerMetrics,name=[name],id=[instance number], until
+	 * unregister() is called. Any MBean already registered under that name is
+	 * replaced.
+	 */
+	void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("core:type=SchedulerMetrics,name=" + name + ",id=" + id);
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(this, objectName);
+			registeredName = objectName;
+		} catch (JMException e) {
+			System.err.println("WARNING: could not register scheduler metrics");
+		}
+	}
+
+	/**
+	 * remove the MBean registered by register(), if any
+	 */
+	void unregister() {
+		if (registeredName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+		} catch (JMException e) {
+			//already gone
+		}
+		registeredName = null;
+	}
+
+	/**
+	 * @return bytes allocated so far by the calling thread, or -1 if the JVM
+	 *  cannot measure it
+	 */
+	static long currentThreadAllocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(
+					Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	public boolean isSearching() {
+		return searching;
+	}
+
+	public int getThreads() {
+		return workers.length;
+	}
+
+	public long getJobsExecuted() {
+		long total = 0;
+		for (Worker w : workers) total += w.jobsExecuted;
+		return total;
+	}
+
+	public long getLeafJobsExecuted() {
+		long total = 0;
+		for (Worker w : workers) total += w.leafJobsExecuted;
+		return total;
+	}
+
+	public long getJobsSkipped() {
+		long total = 0;
+		for (Worker w : workers) total += w.jobsSkipped;
+		return total;
+	}
+
+	public long getStealAttempts() {
+		long total = 0;
+		for (Worker w : workers) total += w.stealAttempts;
+		return total;
+	}
+
+	public long getSteals() {
+		long total = 0;
+		for (Worker w : workers) total += w.steals;
+		return total;
+	}
+
+	public long getBusyMillis() {
+		long total = 0;
+		for (Worker w : workers) total += w.busyNanos;
+		return total / 1000000;
+	}
+
+	public long getSpinMillis() {
+		long total = 0;
+		for (Worker w : workers) total += w.spinNanos;
+		return total / 1000000;
+	}
+
+	public long getStealMillis() {
+		long total = 0;
+		for (Worker w : workers) total += w.stealNanos;
+		return total / 1000000;
+	}
+
+	public long getAllocatedBytes() {
+		long total = 0;
+		for (Worker w : workers) {
+			if (w.allocatedBytes < 0) {
+				return -1;
+			}
+			total += w.allocatedBytes;
+		}
+		return total;
+	}
+
+	public double getAverageQueueDepth() {
+		long samples = 0;
+		long total = 0;
+		for (Worker w : workers) {
+			samples += w.queueDepthSamples;
+			total += w.queueDepthTotal;
+		}
+		return samples == 0 ? 0.0 : (double)total / (double)samples;
+	}
+
+	public long getMaxQueueDepth() {
+		long max = 0;
+		for (Worker w : workers) max = Math.max(max, w.queueDepthMax);
+		return max;
+	}
+
+	public long[] getJobsExecutedPerWorker() {
+		Worker[] w = workers;
+		long[] r = new long[w.length];
+		for (int i = 0; i < w.length; ++i) r[i] = w[i].jobsExecuted;
+		return r;
+	}
+
+	public long[] getBusyMillisPerWorker() {
+		Worker[] w = workers;
+		long[] r = new long[w.length];
+		for (int i = 0; i < w.length; ++i) r[i] = w[i].busyNanos / 1000000;
+		return r;
+	}
+
+	public long[] getSpinMillisPerWorker() {
+		Worker[] w = workers;
+		long[] r = new long[w.length];
+		for (int i = 0; i < w.length; ++i) r[i] = w[i].spinNanos / 1000000;
+		return r;
+	}
+
+	public long[] getStealMillisPerWorker() {
+		Worker[] w = workers;
+		long[] r = new long[w.length];
+		for (int i = 0; i < w.length; ++i) r[i] = w[i].stealNanos / 1000000;
+		return r;
+	}
+
+	/**
+	 * print a per-worker summary
+	 */
+	public void print() {
+		Worker[] w = workers;
+		for (int i = 0; i < w.length; ++i) {
+			System.out.println("worker " + i +
+					": jobs=" + w[i].jobsExecuted +
+					" leafJobs=" + w[i].leafJobsExecuted +
+					" skipped=" + w[i].jobsSkipped +
+					" steals=" + w[i].steals + "/" + w[i].stealAttempts +
+					" busy=" + (w[i].busyNanos / 1000000) + "ms" +
+					" spin=" + (w[i].spinNanos / 1000000) + "ms" +
+					" steal=" + (w[i].stealNanos / 1000000) + "ms" +
+					" avgQueue=" + (w[i].queueDepthSamples == 0 ? 0 :
+						w[i].queueDepthTotal / w[i].queueDepthSamples));
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package core;
+
+/**
+ * JMX view of the SMP job scheduler. Values are read from the workers while
+ * they run, so they are approximate until the search completes.
+ */
+public interface SchedulerMetricsMBean {
+	public boolean isSearching();
+	public int getThreads();
+
+	public long getJobsExecuted();
+	public long getLeafJobsExecuted();
+	public long getJobsSkipped();
+	public long getStealAttempts();
+	public long getSteals();
+
+	public long getBusyMillis();
+	public long getSpinMillis();
+	public long getStealMillis();
+
+	public long getAllocatedBytes();
+
+	public double getAverageQueueDepth();
+	public long getMaxQueueDepth();
+
+	public long[] getJobsExecutedPerWorker();
+	public long[] getBusyMillisPerWorker();
+	public long[] getSpinMillisPerWorker();
+	public long[] getStealMillisPerWorker();
+}
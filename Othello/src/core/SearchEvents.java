@@ -0,0 +1,132 @@
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events emitted by the search engines.
+ *
+ * Events are only ever created at pass, iteration and job granularity, never
+ * per node. When a recording is not running, begin()/commit() on an event are
+ * no-ops and the JIT removes the allocation, so they can stay on in production.
+ * Stack traces are disabled on every event to keep commit cheap when recording.
+ */
+public class SearchEvents {
+	/*
+	 * one null-window pass of MTD(f)
+	 */
+	@Name("othello.MTDfPass")
+	@Label("MTD(f) Pass")
+	@Category({ "Othello", "Search" })
+	@StackTrace(false)
+	public static class MTDfPassEvent extends Event {
+		@Label("Depth")
+		int depth;
+
+		@Label("Alpha")
+		int alpha;
+
+		@Label("Beta")
+		int beta;
+
+		@Label("Result")
+		int result;
+
+		@Label("Nodes")
+		@Description("non-leaf nodes searched during the pass")
+		long nodes;
+
+		@Label("Leaves")
+		long leaves;
+
+		@Label("Parallel")
+		boolean parallel;
+	}
+
+	/*
+	 * one depth of iterative-deepening MTD(f)
+	 */
+	@Name("othello.Iteration")
+	@Label("Search Iteration")
+	@Category({ "Othello", "Search" })
+	@StackTrace(false)
+	public static class IterationEvent extends Event {
+		@Label("Depth")
+		int depth;
+
+		@Label("Guess")
+		int guess;
+
+		@Label("Result")
+		int result;
+
+		@Label("Passes")
+		int passes;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Leaves")
+		long leaves;
+
+		@Label("Parallel")
+		boolean parallel;
+	}
+
+	/*
+	 * SMP job life cycle. "execute" events carry the run time of the job,
+	 * "spawn", "cancel" and "steal" are instant events.
+	 */
+	@Name("othello.Job")
+	@Label("SMP Job")
+	@Category({ "Othello", "SMP" })
+	@StackTrace(false)
+	public static class JobEvent extends Event {
+		@Label("Action")
+		String action;
+
+		@Label("Job Type")
+		String jobType;
+
+		@Label("Depth")
+		@Description("remaining depth of the job's position, -1 if not applicable")
+		int depth;
+
+		@Label("Thread Index")
+		int threadIndex;
+
+		@Label("Completed")
+		boolean completed;
+	}
+
+	/*
+	 * transposition table fill level, committed at the end of every pass
+	 */
+	@Name("othello.TableFill")
+	@Label("Transposition Table Fill")
+	@Category({ "Othello", "Search" })
+	@StackTrace(false)
+	public static class TableFillEvent extends Event {
+		@Label("Entries")
+		long entries;
+
+		@Label("Capacity")
+		long capacity;
+	}
+
+	/**
+	 * commit a TableFillEvent for the given engine's table
+	 */
+	static void commitTableFill(OthelloAlphaBeta search) {
+		TableFillEvent e = new TableFillEvent();
+		if (e.shouldCommit()) {
+			e.entries = search.transpositionTable.size();
+			e.capacity = search.maxTableEntries;
+			e.commit();
+		}
+	}
+}
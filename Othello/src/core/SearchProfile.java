@@ -0,0 +1,284 @@
+package core;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Optional per-ply instrumentation for the search engines.
+ *
+ * Profiling is switched on with -Dothello.profile=true. ENABLED is a static final
+ * so every 'if (SearchProfile.ENABLED)' guard in the search kernels is folded
+ * away by the JIT when profiling is off.
+ *
+ * Statistics are grouped into segments. A driver (MTD(f) pass, iterative
+ * deepening step, plain alpha-beta run) opens a segment before it searches, and
+ * every node visited afterwards is counted against the segment's row for the ply
+ * (distance from the root) at which it was visited.
+ */
+public class SearchProfile {
+	public static final boolean ENABLED = Boolean.getBoolean("othello.profile");
+
+	static final int INITIAL_PLIES = 64; // the counters grow past this on demand
+
+	/*
+	 * counters for one search pass, indexed by ply
+	 */
+	public static class Segment {
+		public String label;
+		public int depth;
+		public int alpha;
+		public int beta;
+		public int result = OthelloAlphaBeta.NOSCORE;
+
+		long[] nodes = new long[INITIAL_PLIES];
+		long[] leaves = new long[INITIAL_PLIES];
+		long[] tableProbes = new long[INITIAL_PLIES];
+		long[] tableHits = new long[INITIAL_PLIES];
+		long[] tableCutoffs = new long[INITIAL_PLIES];
+		long[] expanded = new long[INITIAL_PLIES]; // nodes whose move list was generated
+		long[] legalMoves = new long[INITIAL_PLIES];
+		long[] cutoffs = new long[INITIAL_PLIES];
+		long[] firstMoveCutoffs = new long[INITIAL_PLIES];
+		long[] passes = new long[INITIAL_PLIES];
+		long[] earlyCutoffs = new long[INITIAL_PLIES]; // nodes cut before expanding, other than by the table
+
+		Segment(String label, int depth, int alpha, int beta) {
+			this.label = label;
+			this.depth = depth;
+			this.alpha = alpha;
+			this.beta = beta;
+		}
+
+		/**
+		 * make room for the counters of a ply. Leaves are counted one ply
+		 * below their parent, and passes do not use up depth, so the deepest
+		 * ply is not bounded by the search depth.
+		 *
+		 * @return this segment
+		 */
+		Segment ensurePly(int ply) {
+			if (ply >= nodes.length) {
+				int n = Math.max(ply + 1, nodes.length * 2);
+				nodes = Arrays.copyOf(nodes, n);
+				leaves = Arrays.copyOf(leaves, n);
+				tableProbes = Arrays.copyOf(tableProbes, n);
+				tableHits = Arrays.copyOf(tableHits, n);
+				tableCutoffs = Arrays.copyOf(tableCutoffs, n);
+				expanded = Arrays.copyOf(expanded, n);
+				legalMoves = Arrays.copyOf(legalMoves, n);
+				cutoffs = Arrays.copyOf(cutoffs, n);
+				firstMoveCutoffs = Arrays.copyOf(firstMoveCutoffs, n);
+				passes = Arrays.copyOf(passes, n);
+				earlyCutoffs = Arrays.copyOf(earlyCutoffs, n);
+			}
+			return this;
+		}
+
+		/**
+		 * @return one past the deepest ply that has any recorded activity
+		 */
+		int plyCount() {
+			int n = nodes.length;
+			while (n > 0 && nodes[n - 1] == 0 && leaves[n - 1] == 0) {
+				--n;
+			}
+			return n;
+		}
+
+		/**
+		 * add the counters of another segment, shifted down by plyOffset
+		 */
+		void add(Segment o, int plyOffset) {
+			int plies = o.plyCount();
+			ensurePly(plies + plyOffset);
+			for (int i = 0; i < plies; ++i) {
+				int p = i + plyOffset;
+				nodes[p] += o.nodes[i];
+				leaves[p] += o.leaves[i];
+				tableProbes[p] += o.tableProbes[i];
+				tableHits[p] += o.tableHits[i];
+				tableCutoffs[p] += o.tableCutoffs[i];
+				expanded[p] += o.expanded[i];
+				legalMoves[p] += o.legalMoves[i];
+				cutoffs[p] += o.cutoffs[i];
+				firstMoveCutoffs[p] += o.firstMoveCutoffs[i];
+				passes[p] += o.passes[i];
+				earlyCutoffs[p] += o.earlyCutoffs[i];
+			}
+		}
+	}
+
+	List<Segment> segments = new Vector<Segment>();
+	Segment current = null;
+
+	/**
+	 * start collecting into a new segment
+	 *
+	 * @param label : name of the pass, e.g. "mtdf"
+	 * @param depth : search depth of the pass
+	 * @param alpha : lower bound of the window searched
+	 * @param beta : upper bound of the window searched
+	 */
+	public void beginSegment(String label, int depth, int alpha, int beta) {
+		current = new Segment(label, depth, alpha, beta);
+		segments.add(current);
+	}
+
+	/**
+	 * record the score returned by the current segment's search
+	 */
+	public void endSegment(int result) {
+		if (current != null) {
+			current.result = result;
+		}
+	}
+
+	private Segment segment(int ply) {
+		if (current == null) {
+			beginSegment("search", 0, OthelloAlphaBeta.LOWESTSCORE, OthelloAlphaBeta.HIGHESTSCORE);
+		}
+		return current.ensurePly(ply);
+	}
+
+	public void node(int ply) {
+		++segment(ply).nodes[ply];
+	}
+
+	public void leaf(int ply) {
+		++segment(ply).leaves[ply];
+	}
+
+	public void tableProbe(int ply, boolean hit) {
+		Segment s = segment(ply);
+		++s.tableProbes[ply];
+		if (hit) {
+			++s.tableHits[ply];
+		}
+	}
+
+	public void tableCutoff(int ply) {
+		++segment(ply).tableCutoffs[ply];
+	}
+
+	public void expanded(int ply, int legalMoveCount) {
+		Segment s = segment(ply);
+		++s.expanded[ply];
+		s.legalMoves[ply] += legalMoveCount;
+	}
+
+	/**
+	 * @param moveIndex : 0-based index of the move that caused the cutoff
+	 */
+	public void cutoff(int ply, int moveIndex) {
+		Segment s = segment(ply);
+		++s.cutoffs[ply];
+		if (moveIndex == 0) {
+			++s.firstMoveCutoffs[ply];
+		}
+	}
+
+	public void pass(int ply) {
+		++segment(ply).passes[ply];
+	}
+
+	/**
+	 * a node returned a proven bound without expanding (e.g. stability)
+	 */
+	public void earlyCutoff(int ply) {
+		++segment(ply).earlyCutoffs[ply];
+	}
+
+	/**
+	 * fold the counters of another profile (e.g. one kept by an SMP worker's
+	 * local search) into this one. The other profile's segments are matched
+	 * to the last segments of this one, so a worker that began a segment
+	 * along with each of the driver's is folded in pass by pass; a worker
+	 * with a single segment goes into the current one.
+	 *
+	 * @param other : profile to merge
+	 * @param plyOffset : ply of the other profile's root within this search
+	 */
+	public void merge(SearchProfile other, int plyOffset) {
+		segment(0);
+		int first = Math.max(0, segments.size() - other.segments.size());
+		for (int i = 0; i < other.segments.size(); ++i) {
+			Segment s = segments.get(Math.min(first + i, segments.size() - 1));
+			s.add(other.segments.get(i), plyOffset);
+		}
+	}
+
+	public List<Segment> getSegments() {
+		return segments;
+	}
+
+	public void clear() {
+		segments.clear();
+		current = null;
+	}
+
+	private static double ratio(long num, long den) {
+		return den == 0 ? 0.0 : (double)num / (double)den;
+	}
+
+	/**
+	 * write one row per (segment, ply)
+	 */
+	public void writeCSV(Writer w) throws IOException {
+		PrintWriter out = new PrintWriter(w);
+		out.println("segment,label,depth,alpha,beta,result,ply,nodes,leaves,ttProbes,ttHits,ttCutoffs," +
+				"ttHitRate,cutoffs,firstMoveCutoffs,firstMoveCutoffRate,avgLegalMoves,passes,earlyCutoffs");
+
+		for (int i = 0; i < segments.size(); ++i) {
+			Segment s = segments.get(i);
+			for (int p = 0; p < s.plyCount(); ++p) {
+				out.println(i + "," + s.label + "," + s.depth + "," + s.alpha + "," + s.beta + "," +
+						s.result + "," + p + "," + s.nodes[p] + "," + s.leaves[p] + "," +
+						s.tableProbes[p] + "," + s.tableHits[p] + "," + s.tableCutoffs[p] + "," +
+						ratio(s.tableHits[p], s.tableProbes[p]) + "," +
+						s.cutoffs[p] + "," + s.firstMoveCutoffs[p] + "," +
+						ratio(s.firstMoveCutoffs[p], s.cutoffs[p]) + "," +
+						ratio(s.legalMoves[p], s.expanded[p]) + "," + s.passes[p] + "," +
+						s.earlyCutoffs[p]);
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * write the segments as a JSON array
+	 */
+	public void writeJSON(Writer w) throws IOException {
+		PrintWriter out = new PrintWriter(w);
+		out.println("[");
+
+		for (int i = 0; i < segments.size(); ++i) {
+			Segment s = segments.get(i);
+			out.println("  {\"label\": \"" + s.label + "\", \"depth\": " + s.depth +
+					", \"alpha\": " + s.alpha + ", \"beta\": " + s.beta +
+					", \"result\": " + s.result + ", \"plies\": [");
+
+			int plies = s.plyCount();
+			for (int p = 0; p < plies; ++p) {
+				out.println("    {\"ply\": " + p + ", \"nodes\": " + s.nodes[p] +
+						", \"leaves\": " + s.leaves[p] +
+						", \"ttProbes\": " + s.tableProbes[p] +
+						", \"ttHits\": " + s.tableHits[p] +
+						", \"ttCutoffs\": " + s.tableCutoffs[p] +
+						", \"cutoffs\": " + s.cutoffs[p] +
+						", \"firstMoveCutoffRate\": " + ratio(s.firstMoveCutoffs[p], s.cutoffs[p]) +
+						", \"avgLegalMoves\": " + ratio(s.legalMoves[p], s.expanded[p]) +
+						", \"passes\": " + s.passes[p] +
+						", \"earlyCutoffs\": " + s.earlyCutoffs[p] + "}" + (p + 1 < plies ? "," : ""));
+			}
+
+			out.println("  ]}" + (i + 1 < segments.size() ? "," : ""));
+		}
+
+		out.println("]");
+		out.flush();
+	}
+}
@@ -0,0 +1,182 @@
+package core;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams a compact binary trace of the search tree to a file, for offline
+ * analysis with TraceReader.
+ *
+ * Only nodes shallower than maxPly are recorded, and only every sampleRate-th
+ * call to alphaBetaSearch (i.e. every n-th MTD(f) pass) is traced. Records are
+ * packed into direct buffers on the searching thread and handed to a background
+ * thread that writes them through a FileChannel, so the search never blocks on
+ * disk unless the writer falls a whole queue behind.
+ *
+ * Record layout (big-endian):
+ * SEARCH : tag(1) depth(1) alpha(4) beta(4)
+ * ENTER  : tag(1) ply(1) depth(1) turn(1) white(8) black(8) alpha(4) beta(4)
+ * EXIT   : tag(1) ply(1) flags(1) result(4)
+ */
+public class SearchTracer {
+	static final byte TAG_SEARCH = 1;
+	static final byte TAG_ENTER = 2;
+	static final byte TAG_EXIT = 3;
+
+	//exit flags
+	static final byte TABLE_HIT = 1; // the node found an entry in the transposition table
+	static final byte TABLE_CUTOFF = 2; // the node returned straight from the table
+
+	static final int BUFFER_SIZE = 1 << 16;
+	static final int BUFFER_COUNT = 8;
+	static final int MAX_RECORD = 28;
+
+	private final int maxPly;
+	private final int sampleRate;
+
+	private int searchCount = 0;
+	private boolean active = false; // is the current search being sampled
+
+	private ByteBuffer current;
+	private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(BUFFER_COUNT);
+	private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(BUFFER_COUNT);
+	private final ByteBuffer endOfStream = ByteBuffer.allocate(0);
+
+	private final FileChannel channel;
+	private final Thread writer;
+	private volatile IOException writeError = null;
+
+	/**
+	 * open a trace file and start the writer thread
+	 *
+	 * @param filename : file to write
+	 * @param maxPly : only nodes with ply < maxPly are recorded
+	 * @param sampleRate : trace one search out of every sampleRate
+	 */
+	public SearchTracer(String filename, int maxPly, int sampleRate) throws IOException {
+		this.maxPly = maxPly;
+		this.sampleRate = Math.max(1, sampleRate);
+
+		channel = new FileOutputStream(filename).getChannel();
+
+		for (int i = 0; i < BUFFER_COUNT - 1; ++i) {
+			free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+		}
+		current = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		writer = new Thread("search-trace-writer") {
+			public void run() {
+				writeLoop();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	private void writeLoop() {
+		try {
+			while (true) {
+				ByteBuffer b = full.take();
+				if (b == endOfStream) {
+					break;
+				}
+				try {
+					while (b.hasRemaining()) {
+						channel.write(b);
+					}
+				} catch (IOException e) {
+					writeError = e; // keep draining so the search is never blocked
+				}
+				b.clear();
+				free.add(b);
+			}
+		} catch (InterruptedException e) {
+			//closing
+		}
+	}
+
+	/**
+	 * hand the current buffer to the writer and pick up an empty one
+	 */
+	private void swap() {
+		current.flip();
+		try {
+			full.put(current);
+			current = free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			current = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	}
+
+	private void reserve() {
+		if (current.remaining() < MAX_RECORD) {
+			swap();
+		}
+	}
+
+	/**
+	 * called at the start of every alphaBetaSearch; decides whether it is sampled
+	 */
+	public void beginSearch(int depth, int alpha, int beta) {
+		active = (searchCount++ % sampleRate) == 0;
+
+		if (active) {
+			reserve();
+			current.put(TAG_SEARCH);
+			current.put((byte)depth);
+			current.putInt(alpha);
+			current.putInt(beta);
+		}
+	}
+
+	/**
+	 * @return true if a node at this ply should be recorded
+	 */
+	public boolean traces(int ply) {
+		return active && ply < maxPly;
+	}
+
+	public void enter(int ply, int depth, int turn, OthelloBitBoard position, int alpha, int beta) {
+		reserve();
+		current.put(TAG_ENTER);
+		current.put((byte)ply);
+		current.put((byte)depth);
+		current.put((byte)turn);
+		current.putLong(position.white);
+		current.putLong(position.black);
+		current.putInt(alpha);
+		current.putInt(beta);
+	}
+
+	public void exit(int ply, int result, byte flags) {
+		reserve();
+		current.put(TAG_EXIT);
+		current.put((byte)ply);
+		current.put(flags);
+		current.putInt(result);
+	}
+
+	/**
+	 * flush everything and stop the writer thread
+	 */
+	public void close() throws IOException {
+		current.flip();
+		try {
+			full.put(current);
+			full.put(endOfStream);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+
+		if (writeError != null) {
+			throw writeError;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The original leaf evaluation: disc count plus corner and edge bonuses
+ *
+ * The three terms are weighted per game stage (see EvaluationStages), in units
+ * of 1/WEIGHT_SCALE of a disc, packed TERMS per stage into one array. The
+ * default single stage of 1 per disc, 2 per corner and 1 per edge disc is the
+ * original hand-tuned evaluation. Trained weights are loaded from a binary
+ * file written by EvaluatorTrainer:
+ * int magic ("OSMP"), int version, int stageCount,
+ * 65 bytes stage of each disc count,
+ * then for each stage: short disc, short corner, short edge
+ * Version 1 files have no stage layout and use equal stage buckets.
+ *
+ * @author Nicholas Ver Hoeve
+ */
+public class SimpleEvaluator implements LeafEvaluator {
+	static final int MAGIC = 0x4F534D50;
+	static final int VERSION = 2;
+
+	static final int WEIGHT_SHIFT = 5;
+	static final int WEIGHT_SCALE = 1 << WEIGHT_SHIFT;
+
+	//terms
+	static final int DISCS = 0;
+	static final int CORNERS = 1;
+	static final int EDGES = 2;
+	static final int TERMS = 3;
+
+	static final long CORNER_MASK = 0x8100000000000081L;
+	static final long EDGE_MASK = 0xFF818181818181FFL;
+
+	short[] weights = { 1 * WEIGHT_SCALE, 2 * WEIGHT_SCALE, 1 * WEIGHT_SCALE }; // TERMS per stage
+	byte[] stageOfDiscs = EvaluationStages.buckets(1);
+
+	/**
+	 * estimates the value of the position for use in leaf nodes
+	 *
+	 * @param position : current position
+	 * @param turn: who's turn (WHITE or BLACK)
+	 * @return an estimation of the 'quality' of this positon
+	 */
+	public int evaluate(OthelloBitBoard position, int turn) {
+		long own = (turn == OthelloBoard.WHITE) ? position.white : position.black;
+		long opp = (turn == OthelloBoard.WHITE) ? position.black : position.white;
+		int base = stageOfDiscs[EvaluationStages.discs(position)] * TERMS;
+
+		return (weights[base + DISCS] * termDifference(own, opp, -1L) +
+				weights[base + CORNERS] * termDifference(own, opp, CORNER_MASK) +
+				weights[base + EDGES] * termDifference(own, opp, EDGE_MASK)) >> (WEIGHT_SHIFT - OthelloAlphaBeta.SCORE_SHIFT);
+	}
+
+	/**
+	 * @return own discs minus opponent discs within mask
+	 */
+	static int termDifference(long own, long opp, long mask) {
+		return BitUtil.countSetBits(own & mask) - BitUtil.countSetBits(opp & mask);
+	}
+
+	public int getStageCount() {
+		return weights.length / TERMS;
+	}
+
+	/**
+	 * install a new set of weights
+	 *
+	 * @param w : TERMS weights per stage
+	 * @param stageLayout : stage of each disc count
+	 */
+	void setWeights(short[] w, byte[] stageLayout) {
+		weights = w;
+		stageOfDiscs = stageLayout;
+	}
+
+	public LeafEvaluator copy() {
+		return this; // weights are read-only once loaded
+	}
+
+	/**
+	 * load weights from a file
+	 *
+	 * @param filename : weight file
+	 */
+	public void load(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a simple evaluator weight file");
+			}
+			int version = in.readInt();
+			if (version < 1 || version > VERSION) {
+				throw new IOException("unsupported simple evaluator weight version " + version);
+			}
+			int stages = in.readInt();
+			if (stages < 1 || stages > 61) {
+				throw new IOException("bad stage count " + stages);
+			}
+			byte[] layout = (version == 1) ? EvaluationStages.buckets(stages) : EvaluationStages.read(in, stages);
+
+			short[] w = new short[stages * TERMS];
+			for (int i = 0; i < w.length; ++i) {
+				w[i] = in.readShort();
+			}
+			setWeights(w, layout);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * write the weights to a file
+	 *
+	 * @param filename : weight file
+	 */
+	public void save(String filename) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(getStageCount());
+			EvaluationStages.write(out, stageOfDiscs);
+			for (int i = 0; i < weights.length; ++i) {
+				out.writeShort(weights[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package core;
+
+/**
+ * Fast lower estimate of the stable discs of one player (discs that can never
+ * be flipped again).
+ *
+ * Three sources are combined:
+ * - edges: an edge disc can only be flipped along its edge, so
+ *   Rom.EDGESTABILITY gives exact stability for each of the 3^8 edge
+ *   configurations
+ * - full lines: a disc whose row, column and both diagonals are full can
+ *   never be flanked
+ * - propagation: an inner disc is stable if, in each of its 4 lines, the line
+ *   is full or the disc touches a stable disc of its own color. This is
+ *   repeated until nothing new is found.
+ * Everything except the 4 edge lookups is whole-board shifts and masks.
+ */
+public class StableDiscs {
+	static final long NOT_A = 0xFEFEFEFEFEFEFEFEL; // clear the a-file after a shift toward h
+	static final long NOT_H = 0x7F7F7F7F7F7F7F7FL;
+	static final long FRAME = 0xFF818181818181FFL;
+	static final long COLUMN_MASK = 0x0101010101010101L;
+	static final long COLUMN_TO_ROW = 0x0102040810204080L; // gathers bit 8k into bit k+56
+
+	static final int[] BASE3 = new int[256]; // byte of discs -> base-3 edge index, digit 1
+	static final long[] ROW_TO_COLUMN = new long[256];
+
+	static {
+		for (int b = 0; b < 256; ++b) {
+			for (int k = 0, p = 1; k < 8; ++k, p *= 3) {
+				if ((b & (1 << k)) != 0) {
+					BASE3[b] += p;
+					ROW_TO_COLUMN[b] |= 1L << (8 * k);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the stable-square mask (either color) of an edge, as a byte
+	 */
+	private static int edge(int own, int opp) {
+		return Rom.EDGESTABILITY[BASE3[own] + 2 * BASE3[opp]] & 0xFF;
+	}
+
+	private static int column(long v) {
+		return (int)(((v & COLUMN_MASK) * COLUMN_TO_ROW) >>> 56);
+	}
+
+	/**
+	 * @return the stable discs of both colors on the 4 edges
+	 */
+	static long edgeStable(long own, long opp) {
+		long stable = (long)edge((int)own & 0xFF, (int)opp & 0xFF);
+		stable |= (long)edge((int)(own >>> 56), (int)(opp >>> 56)) << 56;
+		stable |= ROW_TO_COLUMN[edge(column(own), column(opp))];
+		stable |= ROW_TO_COLUMN[edge(column(own >>> 7), column(opp >>> 7))] << 7;
+		return stable;
+	}
+
+	/**
+	 * @param empty : empty squares
+	 * @return squares whose row is full
+	 */
+	static long fullRows(long empty) {
+		long t = empty;
+		t |= (t << 1) & NOT_A;
+		t |= (t << 2) & 0xFCFCFCFCFCFCFCFCL;
+		t |= (t << 4) & 0xF0F0F0F0F0F0F0F0L;
+		t |= (t >>> 1) & NOT_H;
+		t |= (t >>> 2) & 0x3F3F3F3F3F3F3F3FL;
+		t |= (t >>> 4) & 0x0F0F0F0F0F0F0F0FL;
+		return ~t;
+	}
+
+	/**
+	 * @return squares whose column is full
+	 */
+	static long fullColumns(long empty) {
+		long t = empty;
+		t |= (t << 8);
+		t |= (t << 16);
+		t |= (t << 32);
+		t |= (t >>> 8);
+		t |= (t >>> 16);
+		t |= (t >>> 32);
+		return ~t;
+	}
+
+	/**
+	 * @return squares whose a1-h8 direction diagonal is full
+	 */
+	static long fullDiagonals9(long empty) {
+		long t = empty;
+		t |= (t << 9) & NOT_A;
+		t |= (t << 18) & 0xFCFCFCFCFCFCFCFCL;
+		t |= (t << 36) & 0xF0F0F0F0F0F0F0F0L;
+		t |= (t >>> 9) & NOT_H;
+		t |= (t >>> 18) & 0x3F3F3F3F3F3F3F3FL;
+		t |= (t >>> 36) & 0x0F0F0F0F0F0F0F0FL;
+		return ~t;
+	}
+
+	/**
+	 * @return squares whose h1-a8 direction diagonal is full
+	 */
+	static long fullDiagonals7(long empty) {
+		long t = empty;
+		t |= (t << 7) & NOT_H;
+		t |= (t << 14) & 0x3F3F3F3F3F3F3F3FL;
+		t |= (t << 28) & 0x0F0F0F0F0F0F0F0FL;
+		t |= (t >>> 7) & NOT_A;
+		t |= (t >>> 14) & 0xFCFCFCFCFCFCFCFCL;
+		t |= (t >>> 28) & 0xF0F0F0F0F0F0F0F0L;
+		return ~t;
+	}
+
+	/**
+	 * @param own : discs of the player whose stable discs are wanted
+	 * @param opp : discs of the other player
+	 * @return a subset of own that can never be flipped
+	 */
+	static long stable(long own, long opp) {
+		long empty = ~(own | opp);
+		long rows = fullRows(empty);
+		long columns = fullColumns(empty);
+		long diagonals9 = fullDiagonals9(empty);
+		long diagonals7 = fullDiagonals7(empty);
+
+		long stable = own & ((edgeStable(own, opp) & FRAME) | (rows & columns & diagonals9 & diagonals7));
+		if (stable == 0) {
+			return 0; // nothing to grow from
+		}
+
+		long candidates = own & ~stable & ~FRAME; // edge discs are already exact
+		while (true) {
+			long grown = candidates &
+				(rows | (stable << 1) & NOT_A | (stable >>> 1) & NOT_H) &
+				(columns | (stable << 8) | (stable >>> 8)) &
+				(diagonals9 | (stable << 9) & NOT_A | (stable >>> 9) & NOT_H) &
+				(diagonals7 | (stable << 7) & NOT_H | (stable >>> 7) & NOT_A);
+
+			if (grown == 0) {
+				return stable;
+			}
+			stable |= grown;
+			candidates &= ~grown;
+		}
+	}
+
+	/**
+	 * @return number of stable discs of player state
+	 */
+	static int count(OthelloBitBoard position, int state) {
+		if (state == OthelloBoard.WHITE) {
+			return BitUtil.countSetBits(stable(position.white, position.black));
+		} else {
+			return BitUtil.countSetBits(stable(position.black, position.white));
+		}
+	}
+}
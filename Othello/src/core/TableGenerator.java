@@ -1,5 +1,6 @@
 package core;
 import java.io.*;
+import java.util.Arrays;
 
 /**
  * For generating PRECOMPUTED bitboard tables. NOT part of the primary execution.
@@ -18,6 +19,11 @@ public class TableGenerator {
 			out = new DataOutputStream(new FileOutputStream(file));
 			makeFormattedTableA();
 			out.close();
+
+			file = new File("EdgeStability.dat");
+			out = new DataOutputStream(new FileOutputStream(file));
+			makeEdgeStabilityTable();
+			out.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -70,4 +76,78 @@ public class TableGenerator {
 			}
 		}
 	}
+
+	static final int EDGE_CONFIGURATIONS = 6561; // 3^8
+	static int[] edgeStability;
+
+	//generate binary file of stable squares for every edge configuration
+	static void makeEdgeStabilityTable() throws IOException {
+		edgeStability = new int[EDGE_CONFIGURATIONS];
+		Arrays.fill(edgeStability, -1);
+
+		for (int index = 0; index < EDGE_CONFIGURATIONS; ++index) {
+			out.writeByte(stableEdgeSquares(index));
+		}
+	}
+
+	/**
+	 * A disc is stable if no placement on the edge flips it, and it is still
+	 * stable in every edge that placement can lead to. Any empty square may be
+	 * taken by either color, since a move that flips nothing on the edge can
+	 * still be legal through the other directions.
+	 *
+	 * @param index : edge as a base-3 number (0 empty, 1 and 2 colors)
+	 * @return bitmask of the stable squares
+	 */
+	static int stableEdgeSquares(int index) {
+		if (edgeStability[index] != -1) {
+			return edgeStability[index];
+		}
+
+		int[] cells = new int[8];
+		int occupied = 0;
+		for (int k = 0, t = index; k < 8; ++k, t /= 3) {
+			cells[k] = t % 3;
+			if (cells[k] != 0) {
+				occupied |= 1 << k;
+			}
+		}
+
+		int stable = occupied;
+		for (int p = 0; p < 8 && stable != 0; ++p) {
+			if (cells[p] != 0) {
+				continue;
+			}
+			for (int color = 1; color <= 2; ++color) {
+				int[] next = cells.clone();
+				next[p] = color;
+				int flipped = 0;
+
+				for (int dir = -1; dir <= 1; dir += 2) {
+					int run = 0;
+					int k = p + dir;
+					while (k >= 0 && k < 8 && next[k] == 3 - color) {
+						run |= 1 << k;
+						k += dir;
+					}
+					if (k >= 0 && k < 8 && next[k] == color) {
+						flipped |= run;
+					}
+				}
+
+				int nextIndex = 0;
+				for (int k = 7; k >= 0; --k) {
+					if ((flipped & (1 << k)) != 0) {
+						next[k] = color;
+					}
+					nextIndex = nextIndex * 3 + next[k];
+				}
+
+				stable &= ~flipped & stableEdgeSquares(nextIndex);
+			}
+		}
+
+		edgeStability[index] = stable;
+		return stable;
+	}
 }
@@ -0,0 +1,245 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summarizes a trace written by SearchTracer. NOT part of the primary execution.
+ *
+ * Reports, per ply: traced nodes, average and largest subtree size, table
+ * cutoffs, fail-high nodes and move-ordering failures (fail-high nodes whose
+ * cutoff did not come from the first child). It also counts re-searches: nodes
+ * entered again for the same position, depth and turn within one pass (a
+ * transposition the table did not catch) and across passes (MTD(f) re-walking
+ * the tree), with the traced subtree size spent on them.
+ */
+public class TraceReader {
+	static final int MAX_PLY = 64;
+	static final int LARGEST_SHOWN = 10;
+
+	/*
+	 * a node whose ENTER has been read but not yet its EXIT
+	 */
+	static class Frame {
+		int ply;
+		int depth;
+		int turn;
+		long white;
+		long black;
+		int alpha;
+		int beta;
+		int children = 0;
+		long subtree = 1; // this node plus traced descendants
+		boolean reSearchInPass;
+		boolean reSearchAcrossPasses;
+	}
+
+	/*
+	 * identity of a searched node
+	 */
+	static class NodeKey {
+		long white;
+		long black;
+		int depthAndTurn;
+
+		NodeKey(Frame f) {
+			white = f.white;
+			black = f.black;
+			depthAndTurn = (f.depth << 1) | f.turn;
+		}
+
+		public int hashCode() {
+			return new OthelloBitBoard(white, black).hashCode() ^ (depthAndTurn * 136385313);
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof NodeKey)) {
+				return false;
+			}
+			NodeKey k = (NodeKey)o;
+			return white == k.white && black == k.black && depthAndTurn == k.depthAndTurn;
+		}
+	}
+
+	long[] nodes = new long[MAX_PLY];
+	long[] subtreeTotal = new long[MAX_PLY];
+	long[] subtreeMax = new long[MAX_PLY];
+	long[] tableCutoffs = new long[MAX_PLY];
+	long[] failHighs = new long[MAX_PLY];
+	long[] orderingFailures = new long[MAX_PLY];
+
+	int searches = 0;
+	long reSearchesInPass = 0;
+	long reSearchNodesInPass = 0;
+	long reSearchesAcrossPasses = 0;
+	long reSearchNodesAcrossPasses = 0;
+
+	List<Frame> largest = new ArrayList<Frame>();
+
+	Set<NodeKey> seenThisPass = new HashSet<NodeKey>();
+	Map<NodeKey, Integer> lastPassSeen = new HashMap<NodeKey, Integer>();
+
+	/**
+	 * read the whole trace
+	 */
+	void read(String filename) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename), 1 << 16));
+		List<Frame> stack = new ArrayList<Frame>();
+
+		try {
+			while (true) {
+				byte tag = in.readByte();
+
+				if (tag == SearchTracer.TAG_SEARCH) {
+					in.readByte(); // depth
+					in.readInt(); // alpha
+					in.readInt(); // beta
+					++searches;
+					seenThisPass.clear();
+					stack.clear();
+				} else if (tag == SearchTracer.TAG_ENTER) {
+					Frame f = new Frame();
+					f.ply = in.readByte();
+					f.depth = in.readByte();
+					f.turn = in.readByte();
+					f.white = in.readLong();
+					f.black = in.readLong();
+					f.alpha = in.readInt();
+					f.beta = in.readInt();
+
+					if (!stack.isEmpty()) {
+						++stack.get(stack.size() - 1).children;
+					}
+
+					NodeKey key = new NodeKey(f);
+					f.reSearchInPass = !seenThisPass.add(key);
+					Integer last = lastPassSeen.put(key, searches);
+					f.reSearchAcrossPasses = !f.reSearchInPass && last != null && last != searches;
+
+					stack.add(f);
+				} else if (tag == SearchTracer.TAG_EXIT) {
+					in.readByte(); // ply
+					byte flags = in.readByte();
+					int result = in.readInt();
+
+					if (stack.isEmpty()) {
+						continue; // trace began mid-tree
+					}
+
+					Frame f = stack.remove(stack.size() - 1);
+					if (!stack.isEmpty()) {
+						stack.get(stack.size() - 1).subtree += f.subtree;
+					}
+					exitNode(f, flags, result);
+				} else {
+					System.out.println("Corrupt trace: unknown tag " + tag);
+					break;
+				}
+			}
+		} catch (EOFException e) {
+			//done
+		}
+
+		in.close();
+	}
+
+	private void exitNode(Frame f, byte flags, int result) {
+		int p = Math.min(f.ply, MAX_PLY - 1);
+
+		++nodes[p];
+		subtreeTotal[p] += f.subtree;
+		subtreeMax[p] = Math.max(subtreeMax[p], f.subtree);
+
+		if ((flags & SearchTracer.TABLE_CUTOFF) != 0) {
+			++tableCutoffs[p];
+		} else if (result >= f.beta) {
+			++failHighs[p];
+			if (f.children > 1) {
+				++orderingFailures[p]; // the refutation was not tried first
+			}
+		}
+
+		if (f.reSearchInPass) {
+			++reSearchesInPass;
+			reSearchNodesInPass += f.subtree;
+		} else if (f.reSearchAcrossPasses) {
+			++reSearchesAcrossPasses;
+			reSearchNodesAcrossPasses += f.subtree;
+		}
+
+		largest.add(f);
+		if (largest.size() > 4 * LARGEST_SHOWN) {
+			keepLargest();
+		}
+	}
+
+	private void keepLargest() {
+		Collections.sort(largest, new Comparator<Frame>() {
+			public int compare(Frame a, Frame b) {
+				return a.subtree < b.subtree ? 1 : (a.subtree > b.subtree ? -1 : 0);
+			}
+		});
+		while (largest.size() > LARGEST_SHOWN) {
+			largest.remove(largest.size() - 1);
+		}
+	}
+
+	void print() {
+		System.out.println("searches traced: " + searches);
+		System.out.println("ply, nodes, avg subtree, max subtree, table cutoffs, fail highs, ordering failures");
+		for (int p = 0; p < MAX_PLY; ++p) {
+			if (nodes[p] == 0) {
+				continue;
+			}
+			System.out.println(p + ", " + nodes[p] + ", " +
+					String.format("%.1f", (double)subtreeTotal[p] / nodes[p]) + ", " +
+					subtreeMax[p] + ", " + tableCutoffs[p] + ", " + failHighs[p] + ", " +
+					orderingFailures[p]);
+		}
+
+		System.out.println("re-searches within a pass: " + reSearchesInPass +
+				" (" + reSearchNodesInPass + " traced nodes)");
+		System.out.println("re-searches across passes: " + reSearchesAcrossPasses +
+				" (" + reSearchNodesAcrossPasses + " traced nodes)");
+
+		keepLargest();
+		System.out.println("largest subtrees:");
+		for (Frame f : largest) {
+			System.out.println("  " + f.subtree + " nodes at ply " + f.ply + " depth " + f.depth +
+					" " + new OthelloBitBoard(f.white, f.black) +
+					" turn " + (f.turn == OthelloBoard.WHITE ? "white" : "black") +
+					" window [" + f.alpha + ", " + f.beta + "]");
+		}
+	}
+
+	/**
+	 * @param args : trace file
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.out.println("Usage: TraceReader [tracefile]");
+			return;
+		}
+
+		TraceReader reader = new TraceReader();
+		try {
+			reader.read(args[0]);
+		} catch (IOException e) {
+			System.out.println("Error reading trace");
+			e.printStackTrace();
+			return;
+		}
+		reader.print();
+	}
+}
@@ -0,0 +1,70 @@
+package core;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * FlipKernel on the Vector API: one move per lane, with the same 8-direction
+ * floods as OthelloBitBoard.flips run on all lanes at once. Only loaded
+ * through VectorKernels.
+ *
+ * The arrays of a ChildBatch hold MAX_CHILDREN entries, a multiple of any
+ * lane count, so the last vector may run past n on unused slots instead of
+ * needing a scalar tail.
+ */
+final class VectorFlipKernel extends FlipKernel {
+	static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+	void children(long own, long opp, int[] squares, int n,
+			long[] flipped, long[] newOwn, long[] newOpp) {
+		for (int i = 0; i < n; ++i) {
+			flipped[i] = 1L << squares[i]; // move bits, replaced by the flips below
+		}
+
+		long inner = opp & 0x7E7E7E7E7E7E7E7EL;
+		for (int i = 0; i < n; i += LONGS.length()) {
+			LongVector move = LongVector.fromArray(LONGS, flipped, i);
+
+			LongVector f = flipsUp(move, own, inner, 1).or(flipsDown(move, own, inner, 1))
+					.or(flipsUp(move, own, opp, 8)).or(flipsDown(move, own, opp, 8))
+					.or(flipsUp(move, own, inner, 7)).or(flipsDown(move, own, inner, 7))
+					.or(flipsUp(move, own, inner, 9)).or(flipsDown(move, own, inner, 9));
+
+			f.intoArray(flipped, i);
+			f.or(move).or(own).intoArray(newOwn, i);
+			LongVector.broadcast(LONGS, opp).lanewise(VectorOperators.AND_NOT, f).intoArray(newOpp, i);
+		}
+	}
+
+	/**
+	 * @return in each lane, the run of 'run' discs in direction +shift from
+	 * the move if own closes it, else 0
+	 */
+	private static LongVector flipsUp(LongVector move, long own, long run, int shift) {
+		LongVector t = move.lanewise(VectorOperators.LSHL, shift).and(run);
+		t = t.or(t.lanewise(VectorOperators.LSHL, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHL, shift).and(run));
+		VectorMask<Long> closed = t.lanewise(VectorOperators.LSHL, shift).and(own).compare(VectorOperators.NE, 0);
+		return LongVector.zero(LONGS).blend(t, closed);
+	}
+
+	/**
+	 * @return in each lane, the run of 'run' discs in direction -shift from
+	 * the move if own closes it, else 0
+	 */
+	private static LongVector flipsDown(LongVector move, long own, long run, int shift) {
+		LongVector t = move.lanewise(VectorOperators.LSHR, shift).and(run);
+		t = t.or(t.lanewise(VectorOperators.LSHR, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, shift).and(run));
+		t = t.or(t.lanewise(VectorOperators.LSHR, shift).and(run));
+		VectorMask<Long> closed = t.lanewise(VectorOperators.LSHR, shift).and(own).compare(VectorOperators.NE, 0);
+		return LongVector.zero(LONGS).blend(t, closed);
+	}
+}
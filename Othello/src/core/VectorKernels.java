@@ -0,0 +1,35 @@
+package core;
+
+/**
+ * Picks between the plain Java kernels and their jdk.incubator.vector
+ * versions (see NetworkKernel and FlipKernel).
+ *
+ * The vector classes are only loaded by name, and only when the module is
+ * in the boot layer (java --add-modules jdk.incubator.vector), so everything
+ * else runs without the module. -Dothello.scalar=true forces the plain
+ * kernels, e.g. to compare the two.
+ */
+class VectorKernels {
+	static final boolean AVAILABLE = !Boolean.getBoolean("othello.scalar") &&
+			ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+	/**
+	 * @param className : vector subclass of the fallback's class
+	 * @param fallback : plain Java kernel
+	 * @return an instance of className if the Vector API can be used, else fallback
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T load(String className, T fallback) {
+		if (!AVAILABLE) {
+			return fallback;
+		}
+		try {
+			return (T)Class.forName(className).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			System.err.println("WARNING: could not load " + className);
+		} catch (LinkageError e) {
+			System.err.println("WARNING: could not load " + className);
+		}
+		return fallback;
+	}
+}
@@ -0,0 +1,78 @@
+package core;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * NetworkKernel on the Vector API, one lane per hidden unit. Only loaded
+ * through VectorKernels. Units past the last full vector run the scalar
+ * loop.
+ *
+ * Sums wrap in 16 bits exactly like the scalar loops. dot() widens to int
+ * before multiplying, since an activation times an output weight does not
+ * fit in a short.
+ */
+final class VectorNetworkKernel extends NetworkKernel {
+	static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	static final int PARTS = SHORTS.length() / INTS.length(); // int vectors per short vector
+
+	void place(short[] own, short[] opp, short[] w, int ownOffset, int oppOffset, int sign, int n) {
+		int j = 0;
+		for (int bound = SHORTS.loopBound(n); j < bound; j += SHORTS.length()) {
+			ShortVector o = ShortVector.fromArray(SHORTS, own, j);
+			ShortVector p = ShortVector.fromArray(SHORTS, opp, j);
+			ShortVector wo = ShortVector.fromArray(SHORTS, w, ownOffset + j);
+			ShortVector wp = ShortVector.fromArray(SHORTS, w, oppOffset + j);
+			if (sign > 0) {
+				o.add(wo).intoArray(own, j);
+				p.add(wp).intoArray(opp, j);
+			} else {
+				o.sub(wo).intoArray(own, j);
+				p.sub(wp).intoArray(opp, j);
+			}
+		}
+		for (; j < n; ++j) {
+			own[j] += sign * w[ownOffset + j];
+			opp[j] += sign * w[oppOffset + j];
+		}
+	}
+
+	void flip(short[] own, short[] opp, short[] w, int ownOffset, int oppOffset, int n) {
+		int j = 0;
+		for (int bound = SHORTS.loopBound(n); j < bound; j += SHORTS.length()) {
+			ShortVector delta = ShortVector.fromArray(SHORTS, w, ownOffset + j)
+					.sub(ShortVector.fromArray(SHORTS, w, oppOffset + j));
+			ShortVector.fromArray(SHORTS, own, j).add(delta).intoArray(own, j);
+			ShortVector.fromArray(SHORTS, opp, j).sub(delta).intoArray(opp, j);
+		}
+		for (; j < n; ++j) {
+			int delta = w[ownOffset + j] - w[oppOffset + j];
+			own[j] += delta;
+			opp[j] -= delta;
+		}
+	}
+
+	int dot(short[] accumulator, short[] w, int n) {
+		IntVector sums = IntVector.zero(INTS);
+		int j = 0;
+		for (int bound = SHORTS.loopBound(n); j < bound; j += SHORTS.length()) {
+			ShortVector a = ShortVector.fromArray(SHORTS, accumulator, j)
+					.max((short)0).min((short)NetworkEvaluator.ACTIVATION_SCALE);
+			ShortVector weights = ShortVector.fromArray(SHORTS, w, j);
+			for (int part = 0; part < PARTS; ++part) {
+				IntVector wideA = (IntVector)a.convertShape(VectorOperators.S2I, INTS, part);
+				IntVector wideW = (IntVector)weights.convertShape(VectorOperators.S2I, INTS, part);
+				sums = sums.add(wideA.mul(wideW));
+			}
+		}
+		int sum = sums.reduceLanes(VectorOperators.ADD);
+		for (; j < n; ++j) {
+			int a = Math.min(Math.max(accumulator[j], 0), NetworkEvaluator.ACTIVATION_SCALE);
+			sum += a * w[j];
+		}
+		return sum;
+	}
+}